@@ -1,4 +1,4 @@
-import java.util.ArrayDeque;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
@@ -34,30 +34,50 @@ public final class BFS {
             throw new IllegalArgumentException("" + src + " is not present in the graph");
         }
         
-        // BFS algorithm
-        ArrayDeque<Integer> q = new ArrayDeque<Integer>();
-        marked[src] = true;
-        q.addLast(src);
-        parent[src] = src;
-        while (q.size() != 0) {
-            int v = q.pollFirst();
-            result.add(v);
-            for (int w : g.getNeighbors(v)) {
-                if (!marked[w]) {
-                    frontiers[w] = frontiers[v] + 1;
-                    parent[w] = v;
-                    marked[w] = true;
-                    q.addLast(w);
+        // BFS algorithm, with a queue that grows as needed since each node is queued once
+        GraphEvents.Traversal event = new GraphEvents.Traversal();
+        event.begin();
+        long visited = 0;
+        long relaxed = 0;
+        int[] q = new int[16];
+        NeighborCursor neighbors = g.cursor();
+        
+        // nodes before this one have all been marked/discovered, so the sweep never goes back
+        int unmarked = 0;
+        int root = src;
+        while (root >= 0) {
+            int head = 0;
+            int tail = 0;
+            marked[root] = true;
+            q[tail++] = root;
+            parent[root] = root;
+            while (head != tail) {
+                int v = q[head++];
+                result.add(v);
+                visited++;
+                neighbors.reset(v);
+                while (neighbors.hasNext()) {
+                    int w = neighbors.next();
+                    relaxed++;
+                    if (!marked[w]) {
+                        frontiers[w] = frontiers[v] + 1;
+                        parent[w] = v;
+                        marked[w] = true;
+                        if (tail == q.length) {
+                            q = Arrays.copyOf(q, 2 * tail);
+                        }
+                        q[tail++] = w;
+                    }
                 }
             }
-        }
-        
-        // check if all nodes have been marked/discovered
-        for (int i = 0; i < marked.length; i++) {
-            if (!marked[i]) {
-                return bfsImpl(g, i, result, marked, parent, frontiers);
+            
+            // continue from the first node that has not been marked/discovered
+            while (unmarked < marked.length && marked[unmarked]) {
+                unmarked++;
             }
+            root = unmarked < marked.length ? unmarked : -1;
         }
+        Instrumentation.traversal(event, "BFS.bfsImpl", src, visited, relaxed);
         return result;
     }
     /**
@@ -87,22 +107,31 @@ public final class BFS {
         }
         
         // BFS algorithm
-        ArrayDeque<Integer> q = new ArrayDeque<Integer>();
+        GraphEvents.Traversal event = new GraphEvents.Traversal();
+        event.begin();
+        long relaxed = 0;
+        int[] q = new int[g.getSize()];
+        int head = 0;
+        int tail = 0;
+        NeighborCursor neighbors = g.cursor();
         boolean[] marked = new boolean[g.getSize()];
         marked[src] = true;
         
         // variable used to check if the target has been found
         boolean found = false;
         
-        q.addLast(src);
+        q[tail++] = src;
         parent[src] = src;
-        while (q.size() != 0) {
-            int v = q.pollFirst();
-            for (int w : g.getNeighbors(v)) {
+        while (head != tail) {
+            int v = q[head++];
+            neighbors.reset(v);
+            while (neighbors.hasNext()) {
+                int w = neighbors.next();
+                relaxed++;
                 if (!marked[w]) {
                     parent[w] = v;
                     marked[w] = true;
-                    q.addLast(w);
+                    q[tail++] = w;
                     if (w == tgt) {
                         found = true;
                         break;
@@ -113,6 +142,7 @@ public final class BFS {
                 break;
             }
         }
+        Instrumentation.traversal(event, "BFS.bfsPath", src, tail, relaxed);
         return found;
     }
     
@@ -136,23 +166,30 @@ public final class BFS {
         }
         
         // BFS algorithm
-        ArrayDeque<Integer> q = new ArrayDeque<Integer>();
+        GraphEvents.Traversal event = new GraphEvents.Traversal();
+        event.begin();
+        long relaxed = 0;
+        int[] q = new int[g.getSize()];
+        int head = 0;
+        int tail = 0;
+        NeighborCursor neighbors = g.cursor();
         boolean[] marked = new boolean[g.getSize()];
-        Integer[] parent = new Integer[g.getSize()];
         marked[src] = true;
         
-        q.addLast(src);
-        parent[src] = src;
-        while (q.size() != 0) {
-            int v = q.pollFirst();
-            for (int w : g.getNeighbors(v)) {
+        q[tail++] = src;
+        while (head != tail) {
+            int v = q[head++];
+            neighbors.reset(v);
+            while (neighbors.hasNext()) {
+                int w = neighbors.next();
+                relaxed++;
                 if (!marked[w]) {
-                    parent[w] = v;
                     marked[w] = true;
-                    q.addLast(w);
+                    q[tail++] = w;
                 }
             }
         }
+        Instrumentation.traversal(event, "BFS.isConnected", src, tail, relaxed);
         
         // check if there are unmarked/undiscovered nodes
         for (int i = 0; i < marked.length; i++) {
@@ -0,0 +1,337 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Ranks many edge lists and writes a ranks_*.txt file for each. A job is loaded on one pool
+ * and ranked and written on another, so the next file is parsed while the previous one is
+ * ranked. Jobs are admitted in input order. Each one must first get a slot in the pipeline and
+ * reserve the heap its file size suggests, so the number of graphs in memory stays bounded
+ * and large graphs wait until enough of the budget is free. A job that fails is reported and
+ * the batch goes on.
+ */
+public class BatchRanker {
+    // heap a job is assumed to need per byte of edge list: the edge buffer, the CSR arrays,
+    // the names and the rank vectors
+    private static final int HEAP_PER_FILE_BYTE = 3;
+
+    // smallest reservation of a job, for the arrays every graph needs
+    private static final long MIN_RESERVATION = 1 << 20;
+
+    private final PageRank pageRank;
+    private final int loaders;
+    private final int rankers;
+    private final long memoryBudget;
+
+    /**
+     * Creates a runner with one loading thread, one ranking thread, the default PageRank
+     * settings and half of the maximum heap as memory budget.
+     */
+    public BatchRanker() {
+        this(new PageRank(), 1, 1, Runtime.getRuntime().maxMemory() / 2);
+    }
+
+    /**
+     * Creates a runner.
+     * @param pageRank, the settings to rank with
+     * @param loaders, the number of threads loading edge lists
+     * @param rankers, the number of threads ranking graphs and writing their ranks
+     * @param memoryBudget, the heap in bytes the jobs in the pipeline may reserve together
+     * @throws IllegalArgumentException if pageRank is null or a count or the budget is not
+     *         positive
+     */
+    public BatchRanker(PageRank pageRank, int loaders, int rankers, long memoryBudget) {
+        if (pageRank == null) {
+            throw new IllegalArgumentException("PageRank can't be null");
+        }
+        if (loaders <= 0 || rankers <= 0) {
+            throw new IllegalArgumentException("Thread counts must be positive");
+        }
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        this.pageRank = pageRank;
+        this.loaders = loaders;
+        this.rankers = rankers;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Lists the edge lists in a directory, the files named edge_list*.txt, in name order.
+     * @param directory, the directory
+     * @return the paths of the edge lists
+     * @throws IOException if the directory cannot be listed
+     */
+    public static List<String> listDirectory(String directory) throws IOException {
+        String[] names = new File(directory).list();
+        if (names == null) {
+            throw new IOException(directory + " is not a readable directory");
+        }
+        Arrays.sort(names);
+        List<String> inputs = new ArrayList<String>();
+        for (String name : names) {
+            if (name.startsWith("edge_list") && name.endsWith(".txt")) {
+                inputs.add(new File(directory, name).getPath());
+            }
+        }
+        return inputs;
+    }
+
+    /**
+     * Reads a manifest with the path of an edge list on every line. Blank lines and lines
+     * starting with # are skipped, and relative paths are taken from the manifest's directory.
+     * @param manifest, the manifest file
+     * @return the paths of the edge lists, in manifest order
+     * @throws IOException if the manifest cannot be read
+     */
+    public static List<String> readManifest(String manifest) throws IOException {
+        File parent = new File(manifest).getAbsoluteFile().getParentFile();
+        List<String> inputs = new ArrayList<String>();
+        BufferedReader br = new BufferedReader(new FileReader(manifest));
+        try {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                File input = new File(line);
+                inputs.add(input.isAbsolute() ? line : new File(parent, line).getPath());
+            }
+        } finally {
+            br.close();
+        }
+        return inputs;
+    }
+
+    /**
+     * Returns the name of the ranks file of an edge list: edge_list_x.txt gives ranks_x.txt,
+     * edge_list.txt gives ranks.txt and any other x.txt gives ranks_x.txt.
+     * @param input, the path of the edge list
+     * @return the file name of its ranks, without a directory
+     */
+    public static String outputName(String input) {
+        String name = new File(input).getName();
+        if (name.endsWith(".txt")) {
+            name = name.substring(0, name.length() - 4);
+        }
+        if (name.startsWith("edge_list")) {
+            name = name.substring("edge_list".length());
+        } else {
+            name = "_" + name;
+        }
+        return "ranks" + name + ".txt";
+    }
+
+    /**
+     * Loads, ranks and writes every edge list. Returns once every job has finished or failed.
+     * @param inputs, the paths of the edge lists
+     * @param outputDirectory, the directory to write the ranks files to
+     * @return a report for every input, in input order
+     * @throws IllegalArgumentException if inputs or outputDirectory is null
+     */
+    public List<JobReport> run(List<String> inputs, String outputDirectory) {
+        if (inputs == null || outputDirectory == null) {
+            throw new IllegalArgumentException("Inputs and output directory can't be null");
+        }
+
+        // one permit per kilobyte of the budget
+        int budgetPermits = (int) Math.min(Integer.MAX_VALUE, Math.max(1, this.memoryBudget >> 10));
+        Semaphore memory = new Semaphore(budgetPermits, true);
+        Semaphore slots = new Semaphore(this.loaders + this.rankers, true);
+        CountDownLatch done = new CountDownLatch(inputs.size());
+        ExecutorService loadPool = Executors.newFixedThreadPool(this.loaders);
+        ExecutorService rankPool = Executors.newFixedThreadPool(this.rankers);
+        List<Job> jobs = new ArrayList<Job>();
+        try {
+            for (String input : inputs) {
+                Job job = new Job(input, new File(outputDirectory, outputName(input)).getPath(),
+                        memory, slots, done, rankPool);
+                jobs.add(job);
+
+                // a job larger than the whole budget runs once it has the budget to itself
+                long bytes = new File(input).length() * HEAP_PER_FILE_BYTE;
+                bytes = Math.max(MIN_RESERVATION, bytes);
+                job.permits = (int) Math.min(budgetPermits, Math.max(1, bytes >> 10));
+                try {
+                    slots.acquire();
+                    try {
+                        memory.acquire(job.permits);
+                    } catch (InterruptedException e) {
+                        slots.release();
+                        throw e;
+                    }
+                } catch (InterruptedException e) {
+                    // the flag stays set, so every later job fails to be admitted as well
+                    Thread.currentThread().interrupt();
+                    job.permits = 0;
+                    job.failure = e;
+                    done.countDown();
+                    continue;
+                }
+                job.admitted = System.nanoTime();
+                loadPool.execute(job.new Load());
+            }
+            done.await();
+        } catch (InterruptedException e) {
+            // the jobs still running will finish on their own
+            Thread.currentThread().interrupt();
+        } finally {
+            loadPool.shutdown();
+            rankPool.shutdown();
+        }
+
+        List<JobReport> reports = new ArrayList<JobReport>();
+        for (Job job : jobs) {
+            reports.add(job.report());
+        }
+        return reports;
+    }
+
+    /**
+     * Ranks the edge lists of a directory, or of a manifest, and prints a report per job.
+     * @param args, the directory or manifest, and optionally the directory to write the ranks
+     *        to, which is the current directory by default
+     * @throws IOException if the directory or manifest cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("Usage: BatchRanker <directory|manifest> [output directory]");
+            return;
+        }
+        List<String> inputs = new File(args[0]).isDirectory()
+                ? listDirectory(args[0]) : readManifest(args[0]);
+        String outputDirectory = args.length > 1 ? args[1] : ".";
+        int threads = Runtime.getRuntime().availableProcessors();
+        BatchRanker runner = new BatchRanker(new PageRank(), Math.max(1, threads / 2),
+                Math.max(1, threads - threads / 2), Runtime.getRuntime().maxMemory() / 2);
+
+        long start = System.nanoTime();
+        int failed = 0;
+        for (JobReport report : runner.run(inputs, outputDirectory)) {
+            System.out.println(report);
+            if (!report.isSucceeded()) {
+                failed++;
+            }
+        }
+        System.out.println(inputs.size() + " jobs, " + failed + " failed in "
+                + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /**
+     * One edge list on its way through the pipeline. The stages hand the job on, and the last
+     * one gives back its slot and heap, after dropping the graph.
+     */
+    private final class Job {
+        private final String input;
+        private final String output;
+        private final Semaphore memory;
+        private final Semaphore slots;
+        private final CountDownLatch done;
+        private final ExecutorService rankPool;
+        private int permits;
+        private long admitted;
+        private LoadedGraph loaded;
+        private int nodes;
+        private long edges;
+        private int iterations;
+        private long waitNanos;
+        private long loadNanos;
+        private long rankNanos;
+        private long writeNanos;
+        private Throwable failure;
+
+        Job(String input, String output, Semaphore memory, Semaphore slots,
+                CountDownLatch done, ExecutorService rankPool) {
+            this.input = input;
+            this.output = output;
+            this.memory = memory;
+            this.slots = slots;
+            this.done = done;
+            this.rankPool = rankPool;
+        }
+
+        /**
+         * Method for ending the job, whether it succeeded or not.
+         */
+        void finish(Throwable failure) {
+            this.failure = failure;
+            this.loaded = null;
+            this.memory.release(this.permits);
+            this.slots.release();
+            this.done.countDown();
+        }
+
+        JobReport report() {
+            return new JobReport(this.input, this.output, this.nodes, this.edges,
+                    this.iterations, (long) this.permits << 10, this.waitNanos, this.loadNanos,
+                    this.rankNanos, this.writeNanos, this.failure);
+        }
+
+        /**
+         * Parses the edge list, then queues the job for ranking.
+         */
+        private final class Load implements Runnable {
+            @Override
+            public void run() {
+                long start = System.nanoTime();
+                Job.this.waitNanos = start - Job.this.admitted;
+                try {
+                    Job.this.loaded = new EdgeListLoader().load(Job.this.input);
+                    Job.this.nodes = Job.this.loaded.getGraph().getSize();
+                    Job.this.edges = Job.this.loaded.getGraph().getEdgeCount();
+                } catch (Throwable e) {
+                    // any failure, an Error included, must finish the job or run never returns
+                    Job.this.loadNanos = System.nanoTime() - start;
+                    finish(e);
+                    return;
+                }
+                Job.this.loadNanos = System.nanoTime() - start;
+                try {
+                    Job.this.rankPool.execute(new Rank());
+                } catch (Throwable e) {
+                    // a job the rank pool rejects fails on its own
+                    finish(e);
+                }
+            }
+        }
+
+        /**
+         * Ranks the graph and writes the ranks file.
+         */
+        private final class Rank implements Runnable {
+            @Override
+            public void run() {
+                Throwable failure = null;
+                long start = System.nanoTime();
+                try {
+                    PageRankResult result = BatchRanker.this.pageRank.rank(
+                            Job.this.loaded.getGraph());
+                    Job.this.iterations = result.getIterations();
+                    Job.this.rankNanos = System.nanoTime() - start;
+                    start = System.nanoTime();
+                    RankWriter.writeFile(Job.this.output, result.getRanks(),
+                            Job.this.loaded.getDictionary(), -1);
+                    Job.this.writeNanos = System.nanoTime() - start;
+                } catch (Throwable e) {
+                    // charge the time to the stage that failed
+                    if (Job.this.iterations == 0) {
+                        Job.this.rankNanos = System.nanoTime() - start;
+                    } else {
+                        Job.this.writeNanos = System.nanoTime() - start;
+                    }
+                    failure = e;
+                }
+                finish(failure);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * The outcome of a breadth-first search: the parent and level of every node as primitive
+ * arrays together with some statistics about the search.
+ */
+public class BfsResult {
+    private final int[] parents;
+    private final int[] levels;
+    private final int reached;
+    private final int depth;
+    private final int bottomUpSteps;
+    private final long edgesChecked;
+
+    /**
+     * Creates a result.
+     * @param parents, the parent of every node, the root for a root and -1 if not reached
+     * @param levels, the distance of every node from its root, or -1 if not reached
+     * @param reached, the number of nodes that were reached
+     * @param depth, the number of levels of the deepest search tree
+     * @param bottomUpSteps, the number of levels that were expanded bottom-up
+     * @param edgesChecked, the number of edges looked at during the search
+     */
+    public BfsResult(int[] parents, int[] levels, int reached, int depth, int bottomUpSteps,
+            long edgesChecked) {
+        this.parents = parents;
+        this.levels = levels;
+        this.reached = reached;
+        this.depth = depth;
+        this.bottomUpSteps = bottomUpSteps;
+        this.edgesChecked = edgesChecked;
+    }
+
+    /**
+     * Returns the parent array. The array is not copied.
+     * @return the parent of every node, indexed by node
+     */
+    public int[] getParents() {
+        return this.parents;
+    }
+
+    /**
+     * Returns the level array, the counterpart of the frontiers array of
+     * {@link BFS#bfsImpl}. The array is not copied.
+     * @return the level of every node, indexed by node
+     */
+    public int[] getLevels() {
+        return this.levels;
+    }
+
+    public int getReached() {
+        return this.reached;
+    }
+
+    public int getDepth() {
+        return this.depth;
+    }
+
+    public int getBottomUpSteps() {
+        return this.bottomUpSteps;
+    }
+
+    public long getEdgesChecked() {
+        return this.edgesChecked;
+    }
+}
@@ -0,0 +1,363 @@
+import java.util.Arrays;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * The components of a graph: the component id of every node and the size of every component.
+ * Weakly connected components ignore the direction of the edges and are found with a lock-free
+ * union-find that any number of threads can feed edges into. They are numbered by their
+ * smallest node. Strongly connected components follow the edges and are found with Tarjan's
+ * algorithm, run on explicit int stacks so deep graphs cannot overflow the call stack. They
+ * are numbered in the order Tarjan's algorithm completes them, so every edge between two
+ * components goes from a higher id to a lower one.
+ */
+public class Components {
+    // number of work chunks handed to each thread of a parallel union-find
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    // the weak components computed by isWeaklyConnected, per graph
+    private static final Map<Graph, Components> WEAK = new WeakHashMap<Graph, Components>();
+
+    private final int[] ids;
+    private final int[] sizes;
+    private final long version;
+
+    /**
+     * Creates the components from the component id of every node.
+     * @param ids, the component of every node, numbered from 0 without gaps
+     * @param count, the number of components
+     * @param version, the version of the graph the components were computed from
+     */
+    private Components(int[] ids, int count, long version) {
+        this.ids = ids;
+        this.sizes = new int[count];
+        for (int id : ids) {
+            this.sizes[id]++;
+        }
+        this.version = version;
+    }
+
+    /**
+     * Finds the weakly connected components of a graph on the calling thread.
+     * @param g, the graph
+     * @return the components
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static Components weak(Graph g) {
+        return weak(g, null);
+    }
+
+    /**
+     * Finds the weakly connected components of a graph, with the edges split over a pool.
+     * @param g, the graph
+     * @param pool, the pool that unites the edges, or null to use the calling thread
+     * @return the components
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static Components weak(Graph g, ForkJoinPool pool) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        long version = g.getVersion();
+        CsrGraph csr = CsrGraph.of(g);
+        int n = csr.getSize();
+        AtomicIntegerArray parents = new AtomicIntegerArray(n);
+        for (int v = 0; v < n; v++) {
+            parents.set(v, v);
+        }
+
+        // unite the ends of every edge
+        int chunks = pool == null ? 1 : pool.getParallelism() * CHUNKS_PER_THREAD;
+        int[] bounds = PageRank.balancedChunks(csr.offsets(), chunks);
+        UniteStep step = new UniteStep(csr, parents, bounds, 0, bounds.length - 1);
+        if (pool == null) {
+            step.compute();
+        } else {
+            pool.invoke(step);
+        }
+
+        // every root is the smallest node of its component, so the roots come in id order
+        int[] ids = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            int root = find(parents, v);
+            ids[v] = root == v ? count++ : ids[root];
+        }
+        return new Components(ids, count, version);
+    }
+
+    /**
+     * Finds the strongly connected components of a graph with an iterative Tarjan's algorithm.
+     * @param g, the graph
+     * @return the components
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static Components strong(Graph g) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        long version = g.getVersion();
+        CsrGraph csr = CsrGraph.of(g);
+        int n = csr.getSize();
+        int[] offsets = csr.offsets();
+        int[] targets = csr.targets();
+
+        // index[v] is the discovery number of v plus 1, 0 while v is undiscovered
+        int[] index = new int[n];
+        int[] low = new int[n];
+        int[] ids = new int[n];
+        Arrays.fill(ids, -1);
+
+        // the call stack holds nodes and the position of the next edge to follow
+        int[] callNodes = new int[n];
+        int[] callEdges = new int[n];
+        int[] stack = new int[n];
+        int stackSize = 0;
+        int discovered = 0;
+        int count = 0;
+        for (int root = 0; root < n; root++) {
+            if (index[root] != 0) {
+                continue;
+            }
+            int depth = 0;
+            callNodes[0] = root;
+            callEdges[0] = offsets[root];
+            index[root] = ++discovered;
+            low[root] = discovered;
+            stack[stackSize++] = root;
+            while (depth >= 0) {
+                int v = callNodes[depth];
+                if (callEdges[depth] < offsets[v + 1]) {
+                    int w = targets[callEdges[depth]++];
+                    if (index[w] == 0) {
+                        // descend into w
+                        index[w] = ++discovered;
+                        low[w] = discovered;
+                        stack[stackSize++] = w;
+                        depth++;
+                        callNodes[depth] = w;
+                        callEdges[depth] = offsets[w];
+                    } else if (ids[w] < 0) {
+                        // w is still on the stack, so it is in the component being built
+                        low[v] = Math.min(low[v], index[w]);
+                    }
+                    continue;
+                }
+
+                // every edge of v is done, so pop the component if v is its root
+                if (low[v] == index[v]) {
+                    int w;
+                    do {
+                        w = stack[--stackSize];
+                        ids[w] = count;
+                    } while (w != v);
+                    count++;
+                }
+                depth--;
+                if (depth >= 0) {
+                    int parent = callNodes[depth];
+                    low[parent] = Math.min(low[parent], low[v]);
+                }
+            }
+        }
+        return new Components(ids, count, version);
+    }
+
+    /**
+     * Returns whether a graph has a single weakly connected component. The components are kept
+     * per graph and only computed again after the graph changed.
+     * @param g, the graph
+     * @return true if every node can be reached from every other one when the direction of
+     *         the edges is ignored
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static boolean isWeaklyConnected(Graph g) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        synchronized (WEAK) {
+            Components c = WEAK.get(g);
+            if (c == null || c.version != g.getVersion()) {
+                c = weak(g);
+                WEAK.put(g, c);
+            }
+            return c.isConnected();
+        }
+    }
+
+    /**
+     * Returns the component of a node.
+     * @param v the node
+     * @return the id of the component of v
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    public int getComponent(int v) {
+        if (v < 0 || v >= this.ids.length) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+        return this.ids[v];
+    }
+
+    /**
+     * Returns the component ids. The array is not copied.
+     * @return the id of the component of every node, indexed by node
+     */
+    public int[] getIds() {
+        return this.ids;
+    }
+
+    public int getCount() {
+        return this.sizes.length;
+    }
+
+    /**
+     * Returns the number of nodes in a component.
+     * @param component the id of the component
+     * @return the size of the component
+     * @throws IllegalArgumentException if there is no component with the specified id
+     */
+    public int getSize(int component) {
+        if (component < 0 || component >= this.sizes.length) {
+            throw new IllegalArgumentException("" + component + " is not a component");
+        }
+        return this.sizes[component];
+    }
+
+    /**
+     * Returns the component sizes. The array is not copied.
+     * @return the number of nodes of every component, indexed by component id
+     */
+    public int[] getSizes() {
+        return this.sizes;
+    }
+
+    /**
+     * Returns the largest component, the one with the smallest id among equally large ones.
+     * @return the id of the largest component, or -1 if the graph has no nodes
+     */
+    public int getLargest() {
+        int largest = -1;
+        for (int c = 0; c < this.sizes.length; c++) {
+            if (largest < 0 || this.sizes[c] > this.sizes[largest]) {
+                largest = c;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Returns the nodes of a component.
+     * @param component the id of the component
+     * @return the nodes of the component, in increasing order
+     * @throws IllegalArgumentException if there is no component with the specified id
+     */
+    public int[] getMembers(int component) {
+        int[] members = new int[getSize(component)];
+        int count = 0;
+        for (int v = 0; v < this.ids.length && count < members.length; v++) {
+            if (this.ids[v] == component) {
+                members[count++] = v;
+            }
+        }
+        return members;
+    }
+
+    /**
+     * Returns whether all nodes are in one component.
+     * @return true if there is at most one component
+     */
+    public boolean isConnected() {
+        return this.sizes.length <= 1;
+    }
+
+    /**
+     * Returns the version of the graph these components were computed from.
+     * @return the result of {@link Graph#getVersion()} at the time
+     */
+    public long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Method for finding the root of a node, halving the path on the way.
+     */
+    private static int find(AtomicIntegerArray parents, int v) {
+        while (true) {
+            int p = parents.get(v);
+            if (p == v) {
+                return v;
+            }
+            int grandparent = parents.get(p);
+            if (p != grandparent) {
+                parents.compareAndSet(v, p, grandparent);
+            }
+            v = grandparent;
+        }
+    }
+
+    /**
+     * Method for joining the components of u and v. The larger root is hung under the smaller
+     * one with a compare-and-set, which fails and is retried if another thread moved it first.
+     */
+    private static void union(AtomicIntegerArray parents, int u, int v) {
+        while (true) {
+            int ru = find(parents, u);
+            int rv = find(parents, v);
+            if (ru == rv) {
+                return;
+            }
+            if (ru < rv) {
+                int tmp = ru;
+                ru = rv;
+                rv = tmp;
+            }
+            if (parents.compareAndSet(ru, ru, rv)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unites the ends of the edges of the nodes from bounds[lo] to bounds[hi] - 1.
+     */
+    private static final class UniteStep extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CsrGraph csr;
+        private final AtomicIntegerArray parents;
+        private final int[] bounds;
+        private final int lo;
+        private final int hi;
+
+        UniteStep(CsrGraph csr, AtomicIntegerArray parents, int[] bounds, int lo, int hi) {
+            this.csr = csr;
+            this.parents = parents;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (this.hi - this.lo > 1) {
+                int mid = (this.lo + this.hi) >>> 1;
+                invokeAll(new UniteStep(this.csr, this.parents, this.bounds, this.lo, mid),
+                        new UniteStep(this.csr, this.parents, this.bounds, mid, this.hi));
+                return;
+            }
+            int[] offsets = this.csr.offsets();
+            int[] targets = this.csr.targets();
+            for (int u = this.bounds[this.lo]; u < this.bounds[this.hi]; u++) {
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    union(this.parents, u, targets[k]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,826 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed form of a {@link Graph}, in the spirit of the WebGraph framework of
+ * Boldi and Vigna. Crawl graphs have strong locality: the sorted neighbors of a node lie close
+ * to each other, and nodes with nearby ids share large parts of their neighbor lists. Every
+ * node is stored as one record in a single bit stream:
+ * <pre>
+ *   degree      gamma code
+ *   reference   gamma code of r, only if the degree is not 0: the row of node v - r is
+ *               copied from, or 0 for none
+ *   blocks      only if r is not 0: the gamma coded number of blocks, then the lengths of
+ *               alternating runs of the referenced row to copy and to skip, starting with a
+ *               copy run; the rest of the row after the last block is skipped
+ *   residuals   the neighbors that were not copied, in increasing order: the first as a zeta
+ *               code of its signed distance from v, every other one as a zeta code of its gap
+ *               to the previous one, minus 1
+ * </pre>
+ * A reference only goes back at most window nodes, and following references from any row
+ * reaches at most maxRefCount other rows, which bounds the work of decoding a single row. The
+ * bit position of every INDEX_INTERVAL-th record is kept in a sparse index, so a row is found by
+ * skipping at most INDEX_INTERVAL - 1 records.
+ *
+ * Rows are decoded through reusable decoders that only allocate when they meet a row longer
+ * than any before: {@link #cursor()} for BFS and DFS, and a sequential scan that keeps the last
+ * window rows for PageRank and {@link CsrGraph#of}. Single lookups such as hasEdge use a
+ * decoder of their own for the call.
+ */
+public class CompressedGraph extends Graph {
+    public static final int DEFAULT_WINDOW = 7;
+    public static final int DEFAULT_MAX_REF_COUNT = 3;
+
+    // every 2^INDEX_SHIFT-th record has its bit position in the index
+    private static final int INDEX_SHIFT = 3;
+    static final int INDEX_INTERVAL = 1 << INDEX_SHIFT;
+
+    // the k of the zeta codes of the residuals, which suits gaps with a power-law distribution
+    private static final int ZETA_K = 3;
+
+    private final long[] bits;
+    private final long bitLength;
+    private final long[] index;
+    private final int size;
+    private final long edgeCount;
+    private final int window;
+
+    private CompressedGraph(long[] bits, long bitLength, long[] index, int size, long edgeCount,
+            int window) {
+        super(0);
+        this.bits = bits;
+        this.bitLength = bitLength;
+        this.index = index;
+        this.size = size;
+        this.edgeCount = edgeCount;
+        this.window = window;
+    }
+
+    /**
+     * Builds the compressed form of a graph with the default window and reference chain
+     * length.
+     * @param g the graph to compress
+     * @return the compressed form of g, or g itself if it already is one
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static CompressedGraph of(Graph g) {
+        return of(g, DEFAULT_WINDOW, DEFAULT_MAX_REF_COUNT);
+    }
+
+    /**
+     * Builds the compressed form of a graph. Every row is written once without a reference and
+     * once for every row in the window it may copy from, and the shortest record is kept.
+     * @param g the graph to compress
+     * @param window how many earlier rows a row may copy from, or 0 to only gap-encode rows
+     * @param maxRefCount how many references may be followed from any row
+     * @return the compressed form of g, or g itself if it already is one
+     * @throws IllegalArgumentException if the specified graph is null or a setting is negative
+     */
+    public static CompressedGraph of(Graph g, int window, int maxRefCount) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (window < 0 || maxRefCount < 0) {
+            throw new IllegalArgumentException("Window and reference count cannot be negative");
+        }
+        if (g instanceof CompressedGraph) {
+            return (CompressedGraph) g;
+        }
+        GraphEvents.Build event = new GraphEvents.Build();
+        event.begin();
+        int n = g.getSize();
+        long[] index = new long[(n + INDEX_INTERVAL - 1) >>> INDEX_SHIFT];
+        BitWriter out = new BitWriter();
+
+        // the last window rows and the length of the reference chain behind each of them
+        int[][] rows = new int[window + 1][];
+        int[] chains = new int[window + 1];
+        long edges = 0;
+        for (int v = 0; v < n; v++) {
+            if ((v & (INDEX_INTERVAL - 1)) == 0) {
+                index[v >>> INDEX_SHIFT] = out.position();
+            }
+            int degree = g.outDegree(v);
+            int[] row = new int[degree];
+            for (int k = 0; k < degree; k++) {
+                row[k] = g.neighborAt(v, k);
+            }
+            edges += degree;
+
+            // try every row in the window and keep the reference with the shortest record
+            long start = out.position();
+            writeRecord(out, v, row, null, 0, window > 0);
+            long best = out.position() - start;
+            int bestReference = 0;
+            for (int r = 1; degree > 0 && r <= Math.min(window, v); r++) {
+                int slot = (v - r) % (window + 1);
+                if (chains[slot] >= maxRefCount || rows[slot].length == 0) {
+                    continue;
+                }
+                out.rewind(start);
+                writeRecord(out, v, row, rows[slot], r, true);
+                if (out.position() - start < best) {
+                    best = out.position() - start;
+                    bestReference = r;
+                }
+            }
+            out.rewind(start);
+            int slot = v % (window + 1);
+            if (bestReference == 0) {
+                writeRecord(out, v, row, null, 0, window > 0);
+                chains[slot] = 0;
+            } else {
+                int referenced = (v - bestReference) % (window + 1);
+                writeRecord(out, v, row, rows[referenced], bestReference, true);
+                chains[slot] = chains[referenced] + 1;
+            }
+            rows[slot] = row;
+        }
+        CompressedGraph compressed = new CompressedGraph(out.toArray(), out.position(), index, n,
+                edges, window);
+        GraphEvents.built(event, "CompressedGraph.of", n, edges);
+        return compressed;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Method for returning the number of edges in the graph.
+     * @return the number of edges in the graph
+     */
+    public long getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    /**
+     * Returns the space the graph takes per edge, counting the bit stream and the index.
+     * @return the number of bits per edge, or 0 if there are no edges
+     */
+    public double getBitsPerEdge() {
+        if (this.edgeCount == 0) {
+            return 0.0;
+        }
+        return (this.bitLength + 64.0 * this.index.length) / this.edgeCount;
+    }
+
+    @Override
+    public boolean hasEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+        Decoder decoder = decoder();
+        int degree = decoder.decode(u);
+        int[] row = decoder.row();
+        int lo = 0;
+        int hi = degree - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (row[mid] < v) {
+                lo = mid + 1;
+            } else if (row[mid] > v) {
+                hi = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Compressed graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEdge(int u, int v) {
+        throw new UnsupportedOperationException("Compressed graphs cannot be modified");
+    }
+
+    /**
+     * Compressed graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int addEdges(int[] sources, int[] destinations, int count) {
+        throw new UnsupportedOperationException("Compressed graphs cannot be modified");
+    }
+
+    /**
+     * Compressed graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(int u, int v) {
+        throw new UnsupportedOperationException("Compressed graphs cannot be modified");
+    }
+
+    @Override
+    public Set<Integer> getNeighbors(int v) {
+        checkNode(v);
+        Decoder decoder = decoder();
+        int degree = decoder.decode(v);
+        int[] row = decoder.row();
+        Set<Integer> neighbors = new TreeSet<Integer>();
+        for (int k = 0; k < degree; k++) {
+            neighbors.add(row[k]);
+        }
+        return Collections.unmodifiableSet(neighbors);
+    }
+
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        checkNode(v);
+        if (action == null) {
+            throw new IllegalArgumentException("Action can't be null");
+        }
+
+        // the action may use this graph too, so the row gets a decoder of its own
+        NeighborCursor neighbors = cursor().reset(v);
+        while (neighbors.hasNext()) {
+            action.accept(neighbors.next());
+        }
+    }
+
+    /**
+     * Returns a cursor that decodes the row of a node when it is moved there. One cursor can
+     * be reset to any number of nodes and keeps its buffers, so a traversal allocates nothing
+     * once it has seen its longest row.
+     * @return a new cursor, positioned on no node
+     */
+    @Override
+    public NeighborCursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * Decompresses the graph onto the heap in one sequential scan.
+     * @return the CSR form of the graph
+     * @throws IllegalStateException if the graph has more edges than an array can hold
+     */
+    @Override
+    CsrGraph toCsrGraph() {
+        if (this.edgeCount > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many edges for a CSR graph");
+        }
+        int[] offsets = new int[this.size + 1];
+        int[] targets = new int[(int) this.edgeCount];
+        Scan scan = scan();
+        for (int v = 0; v < this.size; v++) {
+            int degree = scan.next();
+            System.arraycopy(scan.row(), 0, targets, offsets[v], degree);
+            offsets[v + 1] = offsets[v] + degree;
+        }
+        return new CsrGraph(offsets, targets);
+    }
+
+    @Override
+    int outDegree(int v) {
+        return decoder().degree(v);
+    }
+
+    /**
+     * Returns the k-th outgoing neighbor of the specified node. Every call decodes the whole
+     * row, so reading a row in order should go through a cursor instead.
+     * @param v the node
+     * @param k the position in the neighbor list, between 0 and outDegree(v) - 1
+     * @return the k-th neighbor of v
+     */
+    @Override
+    int neighborAt(int v, int k) {
+        Decoder decoder = decoder();
+        decoder.decode(v);
+        return decoder.row()[k];
+    }
+
+    @Override
+    boolean isModifiable() {
+        return false;
+    }
+
+    /**
+     * Returns a decoder that reads every row in order, starting with node 0.
+     * @return a new scan
+     */
+    @Override
+    Scan scan() {
+        return new Scan();
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.size) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+    }
+
+    /**
+     * Method for writing the record of a row, copying from a referenced row if one is given.
+     * @param out, the stream to write to
+     * @param v, the node
+     * @param row, the sorted neighbors of v
+     * @param ref, the sorted row to copy from, or null for none
+     * @param r, how many nodes back ref is
+     * @param referable, whether the record has a reference field
+     */
+    private static void writeRecord(BitWriter out, int v, int[] row, int[] ref, int r,
+            boolean referable) {
+        out.writeGamma(row.length);
+        if (row.length == 0) {
+            return;
+        }
+        if (referable) {
+            out.writeGamma(r);
+        }
+
+        // split the referenced row into runs of copied and skipped neighbors
+        boolean[] copied = new boolean[row.length];
+        if (ref != null) {
+            int[] runs = new int[ref.length + 1];
+            int count = 0;
+            int length = 0;
+            boolean copying = true;
+            int k = 0;
+            for (int w : ref) {
+                while (k < row.length && row[k] < w) {
+                    k++;
+                }
+                boolean shared = k < row.length && row[k] == w;
+                if (shared) {
+                    copied[k] = true;
+                }
+                if (shared != copying) {
+                    runs[count++] = length;
+                    length = 0;
+                    copying = shared;
+                }
+                length++;
+            }
+            if (copying) {
+                runs[count++] = length;
+            }
+            out.writeGamma(count);
+            for (int i = 0; i < count; i++) {
+                out.writeGamma(i == 0 ? runs[i] : runs[i] - 1);
+            }
+        }
+
+        // gap-encode the neighbors that were not copied
+        long previous = -1;
+        for (int k = 0; k < row.length; k++) {
+            if (copied[k]) {
+                continue;
+            }
+            if (previous < 0) {
+                long distance = (long) row[k] - v;
+                out.writeZeta(distance >= 0 ? 2 * distance : -2 * distance - 1, ZETA_K);
+            } else {
+                out.writeZeta(row[k] - previous - 1, ZETA_K);
+            }
+            previous = row[k];
+        }
+    }
+
+    /**
+     * Method for reading the rest of a record once its degree and reference are known, merging
+     * the copied and the residual neighbors into a sorted row.
+     * @param in, the stream, positioned after the reference field
+     * @param v, the node
+     * @param degree, the number of neighbors of v
+     * @param ref, the referenced row, or null for none
+     * @param blocks, a buffer for the run lengths, grown if needed
+     * @param out, the buffer for the row, long enough for degree neighbors
+     * @return the blocks buffer, which may have been replaced by a longer one
+     */
+    private static int[] readRow(BitReader in, int v, int degree, int[] ref, int[] blocks,
+            int[] out) {
+        int copied = 0;
+        if (ref != null) {
+            int count = in.readGamma();
+            if (blocks.length < count) {
+                blocks = new int[Math.max(count, 2 * blocks.length)];
+            }
+            for (int i = 0; i < count; i++) {
+                blocks[i] = i == 0 ? in.readGamma() : in.readGamma() + 1;
+                if ((i & 1) == 0) {
+                    copied += blocks[i];
+                }
+            }
+
+            // put the copied neighbors at the end of the row
+            int position = 0;
+            int write = degree - copied;
+            for (int i = 0; i < count; i++) {
+                if ((i & 1) == 0) {
+                    System.arraycopy(ref, position, out, write, blocks[i]);
+                    write += blocks[i];
+                }
+                position += blocks[i];
+            }
+        }
+
+        // merge the residuals in front of them; the write position never passes the read one
+        int residuals = degree - copied;
+        int read = residuals;
+        int write = 0;
+        long previous = 0;
+        for (int i = 0; i < residuals; i++) {
+            long code = in.readZeta(ZETA_K);
+            long w = i == 0 ? v + ((code & 1) == 0 ? code >>> 1 : -((code + 1) >>> 1))
+                    : previous + 1 + code;
+            while (read < degree && out[read] < w) {
+                out[write++] = out[read++];
+            }
+            out[write++] = (int) w;
+            previous = w;
+        }
+        return blocks;
+    }
+
+    /**
+     * Method for creating a decoder over this graph. Decoders only refer to the arrays of the
+     * graph, and none is kept beyond the call that needs it.
+     */
+    private Decoder decoder() {
+        return new Decoder(this.bits, this.index, this.window);
+    }
+
+    /**
+     * Decodes the row of any node, following references through one buffer per level of the
+     * chain. The last row decoded at the top level stays available until the next one.
+     */
+    private static final class Decoder {
+        private final BitReader in;
+        private final long[] index;
+        private final int window;
+        private int[][] levels = new int[1][16];
+        private int[] blocks = new int[16];
+        private int node = -1;
+        private int degree;
+
+        Decoder(long[] bits, long[] index, int window) {
+            this.in = new BitReader(bits);
+            this.index = index;
+            this.window = window;
+        }
+
+        /**
+         * Decodes the row of a node into row().
+         * @return the degree of the node
+         */
+        int decode(int v) {
+            if (v != this.node) {
+                this.node = -1;
+                this.degree = decode(v, 0);
+                this.node = v;
+            }
+            return this.degree;
+        }
+
+        int[] row() {
+            return this.levels[0];
+        }
+
+        int degree(int v) {
+            if (v == this.node) {
+                return this.degree;
+            }
+            seek(v);
+            return this.in.readGamma();
+        }
+
+        private int decode(int v, int level) {
+            seek(v);
+            int d = this.in.readGamma();
+            if (level == this.levels.length) {
+                this.levels = Arrays.copyOf(this.levels, level + 1);
+                this.levels[level] = new int[16];
+            }
+            if (this.levels[level].length < d) {
+                this.levels[level] = new int[Math.max(d, 2 * this.levels[level].length)];
+            }
+            if (d == 0) {
+                return 0;
+            }
+            int r = this.window > 0 ? this.in.readGamma() : 0;
+            int[] ref = null;
+            if (r > 0) {
+                long resume = this.in.position();
+                decode(v - r, level + 1);
+                ref = this.levels[level + 1];
+                this.in.seek(resume);
+            }
+            this.blocks = readRow(this.in, v, d, ref, this.blocks, this.levels[level]);
+            return d;
+        }
+
+        /**
+         * Method for moving to the record of a node: the closest indexed record before it, then
+         * skipping records.
+         */
+        private void seek(int v) {
+            this.in.seek(this.index[v >>> INDEX_SHIFT]);
+            for (int u = v & -INDEX_INTERVAL; u < v; u++) {
+                int d = this.in.readGamma();
+                if (d == 0) {
+                    continue;
+                }
+                int copied = 0;
+                if (this.window > 0 && this.in.readGamma() > 0) {
+                    int count = this.in.readGamma();
+                    for (int i = 0; i < count; i++) {
+                        int length = i == 0 ? this.in.readGamma() : this.in.readGamma() + 1;
+                        if ((i & 1) == 0) {
+                            copied += length;
+                        }
+                    }
+                }
+                for (int k = copied; k < d; k++) {
+                    this.in.readZeta(ZETA_K);
+                }
+            }
+        }
+    }
+
+    /**
+     * Cursor that decodes a whole row when it moves to a node.
+     */
+    private final class Cursor extends NeighborCursor {
+        private final Decoder decoder = decoder();
+        private int position;
+        private int degree;
+
+        Cursor() {
+            super(CompressedGraph.this);
+        }
+
+        @Override
+        public NeighborCursor reset(int v) {
+            checkNode(v);
+            this.degree = this.decoder.decode(v);
+            this.position = 0;
+            return this;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.position < this.degree;
+        }
+
+        @Override
+        public int next() {
+            if (this.position >= this.degree) {
+                throw new IllegalStateException("No neighbors left");
+            }
+            return this.decoder.row()[this.position++];
+        }
+    }
+
+    /**
+     * Sequential decoder over every row in order. It keeps the last window rows, so a reference
+     * is copied from a row decoded moments ago instead of being decoded again.
+     */
+    final class Scan implements RowScan {
+        private final BitReader in = new BitReader(CompressedGraph.this.bits);
+        private final int[][] rows = new int[CompressedGraph.this.window + 1][16];
+        private int[] blocks = new int[16];
+        private int node;
+
+        /**
+         * Goes back to node 0.
+         */
+        @Override
+        public void reset() {
+            this.in.seek(0);
+            this.node = 0;
+        }
+
+        /**
+         * Decodes the row of the next node into row().
+         * @return the degree of the node
+         * @throws IllegalStateException if every row has been read
+         */
+        @Override
+        public int next() {
+            int v = this.node;
+            if (v >= CompressedGraph.this.size) {
+                throw new IllegalStateException("No rows left");
+            }
+            int slot = v % this.rows.length;
+            int d = this.in.readGamma();
+            if (this.rows[slot].length < d) {
+                this.rows[slot] = new int[Math.max(d, 2 * this.rows[slot].length)];
+            }
+            if (d > 0) {
+                int r = CompressedGraph.this.window > 0 ? this.in.readGamma() : 0;
+                int[] ref = r > 0 ? this.rows[(v - r) % this.rows.length] : null;
+                this.blocks = readRow(this.in, v, d, ref, this.blocks, this.rows[slot]);
+            }
+            this.node++;
+            return d;
+        }
+
+        /**
+         * Returns the row decoded last. The array is reused and may be longer than the row.
+         * @return the neighbors of the last node, in increasing order
+         */
+        @Override
+        public int[] row() {
+            return this.rows[(this.node - 1) % this.rows.length];
+        }
+
+        @Override
+        public int start() {
+            return 0;
+        }
+
+        @Override
+        public long edgeCount() {
+            return CompressedGraph.this.edgeCount;
+        }
+    }
+
+    /**
+     * Reads codes from a bit stream, most significant bit of each word first.
+     */
+    private static final class BitReader {
+        private final long[] words;
+        private long position;
+
+        BitReader(long[] words) {
+            this.words = words;
+        }
+
+        long position() {
+            return this.position;
+        }
+
+        void seek(long position) {
+            this.position = position;
+        }
+
+        /**
+         * Method for reading n bits, for n between 0 and 64.
+         */
+        long readBits(int n) {
+            if (n == 0) {
+                return 0;
+            }
+            int word = (int) (this.position >>> 6);
+            int bit = (int) (this.position & 63);
+            long value = this.words[word] << bit;
+            if (bit + n > 64) {
+                value |= this.words[word + 1] >>> (64 - bit);
+            }
+            this.position += n;
+            return value >>> (64 - n);
+        }
+
+        /**
+         * Method for reading a unary code: the number of 0 bits before the next 1 bit.
+         */
+        int readUnary() {
+            int word = (int) (this.position >>> 6);
+            int bit = (int) (this.position & 63);
+            long value = this.words[word] << bit;
+            int zeros = 0;
+            while (value == 0) {
+                zeros += 64 - bit;
+                bit = 0;
+                value = this.words[++word];
+            }
+            zeros += Long.numberOfLeadingZeros(value);
+            this.position += zeros + 1;
+            return zeros;
+        }
+
+        /**
+         * Method for reading the next 64 bits without moving, padded with 0 bits at the end.
+         */
+        private long peek() {
+            int word = (int) (this.position >>> 6);
+            int bit = (int) (this.position & 63);
+            long value = this.words[word] << bit;
+            return bit == 0 ? value : value | this.words[word + 1] >>> (64 - bit);
+        }
+
+        int readGamma() {
+            // codes that fit in the next 64 bits are read at once
+            long next = peek();
+            int length = Long.numberOfLeadingZeros(next);
+            if (2 * length + 1 <= 64) {
+                this.position += 2 * length + 1;
+                return (int) ((next >>> (63 - 2 * length)) - 1);
+            }
+            length = readUnary();
+            return (int) ((1L << length | readBits(length)) - 1);
+        }
+
+        long readZeta(int k) {
+            long next = peek();
+            int h = Long.numberOfLeadingZeros(next);
+            int n = (h + 1) * k;
+            if (h + 1 + n <= 64) {
+                this.position += h + 1 + n;
+                return ((next << (h + 1)) >>> (64 - n)) - 1;
+            }
+            h = readUnary();
+            return readBits((h + 1) * k) - 1;
+        }
+    }
+
+    /**
+     * Writes codes to a growing bit stream, most significant bit of each word first.
+     */
+    private static final class BitWriter {
+        private long[] words = new long[1024];
+        private long position;
+
+        long position() {
+            return this.position;
+        }
+
+        /**
+         * Method for going back to an earlier position, clearing everything written after it.
+         */
+        void rewind(long to) {
+            int word = (int) (to >>> 6);
+            int last = (int) (this.position >>> 6);
+            for (int w = word + 1; w <= last && w < this.words.length; w++) {
+                this.words[w] = 0;
+            }
+            int bit = (int) (to & 63);
+            this.words[word] &= bit == 0 ? 0 : -1L << (64 - bit);
+            this.position = to;
+        }
+
+        /**
+         * Method for writing the n low bits of a value, for n between 0 and 64.
+         */
+        void writeBits(long value, int n) {
+            ensure(n);
+            if (n == 0) {
+                return;
+            }
+            int word = (int) (this.position >>> 6);
+            int free = 64 - (int) (this.position & 63);
+            if (n <= free) {
+                this.words[word] |= value << (free - n);
+            } else {
+                this.words[word] |= value >>> (n - free);
+                this.words[word + 1] |= value << (64 - (n - free));
+            }
+            this.position += n;
+        }
+
+        void writeUnary(int zeros) {
+            ensure(zeros + 1);
+            this.position += zeros;
+            writeBits(1, 1);
+        }
+
+        /**
+         * Method for writing the Elias gamma code of x + 1, for x at least 0.
+         */
+        void writeGamma(long x) {
+            long y = x + 1;
+            int length = 63 - Long.numberOfLeadingZeros(y);
+            writeUnary(length);
+            writeBits(y & ((1L << length) - 1), length);
+        }
+
+        /**
+         * Method for writing the zeta code of x + 1, for x at least 0: the number h of k-bit
+         * groups it needs beyond the first in unary, then (h + 1) * k bits.
+         */
+        void writeZeta(long x, int k) {
+            long y = x + 1;
+            int h = (63 - Long.numberOfLeadingZeros(y)) / k;
+            writeUnary(h);
+            writeBits(y, (h + 1) * k);
+        }
+
+        /**
+         * Returns the stream with a spare word at the end, so reads never run off the array.
+         */
+        long[] toArray() {
+            return Arrays.copyOf(this.words, (int) (this.position >>> 6) + 2);
+        }
+
+        private void ensure(int n) {
+            long needed = ((this.position + n) >>> 6) + 2;
+            if (needed > this.words.length) {
+                this.words = Arrays.copyOf(this.words,
+                        (int) Math.max(needed, 2L * this.words.length));
+            }
+        }
+    }
+}
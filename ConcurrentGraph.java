@@ -0,0 +1,632 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * A graph that writers add edges to while readers rank and search it. Readers never see the
+ * edges change under them: they work on a {@link Snapshot}, an immutable version of the graph
+ * taken at one point in time, and can keep it as long as they like.
+ *
+ * Writers append edges to one of several striped buffers, picked by thread, so writers on
+ * different threads rarely wait for each other and never wait for readers. Full buffers are
+ * queued and merged into a new version on a background thread. A version is a CSR base plus
+ * an overlay of vertex blocks. Merging copies only the blocks the new edges touch and shares
+ * every other block with the previous version, so publishing costs as much as the blocks it
+ * changes. Once the overlay holds a good part of the edges, the background thread compacts
+ * the latest version into a fresh CSR base while writers and readers carry on. Old versions
+ * are reclaimed by the garbage collector once no reader holds them.
+ */
+public final class ConcurrentGraph {
+    // vertices per block of the overlay
+    private static final int BLOCK_SHIFT = 8;
+    private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+
+    // edges a stripe holds before its buffer is queued for merging
+    private static final int CHUNK = 1 << 13;
+
+    // queued edges that make the background thread publish a new version
+    private static final long PUBLISH_THRESHOLD = 1 << 16;
+
+    // overlay edges that make the background thread compact, at least, and as part of the base
+    private static final long COMPACT_MIN_EDGES = 1 << 16;
+    private static final int COMPACT_FRACTION = 4;
+
+    private final int size;
+    private final Stripe[] stripes;
+    private final ConcurrentLinkedQueue<Stripe> queued = new ConcurrentLinkedQueue<Stripe>();
+    private final AtomicLong queuedEdges = new AtomicLong();
+
+    // versions are published and installed one at a time under this lock
+    private final Object publishLock = new Object();
+
+    // compactions run one at a time, so only merges can happen while a base is built
+    private final Object compactLock = new Object();
+    private volatile Snapshot current;
+
+    private final ExecutorService background;
+    private final AtomicBoolean publishScheduled = new AtomicBoolean();
+    private final AtomicBoolean compactScheduled = new AtomicBoolean();
+
+    /**
+     * Creates an empty graph of size n, with one ingestion stripe per processor.
+     * @param n the number of nodes in the graph
+     * @throws IllegalArgumentException if n is negative
+     */
+    public ConcurrentGraph(int n) {
+        this(n, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates an empty graph of size n.
+     * @param n the number of nodes in the graph
+     * @param writers the number of threads expected to add edges at the same time
+     * @throws IllegalArgumentException if n is negative or writers is not positive
+     */
+    public ConcurrentGraph(int n, int writers) {
+        // case where input is negative
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of vertices cannot be negative");
+        }
+        if (writers <= 0) {
+            throw new IllegalArgumentException("Need at least one writer");
+        }
+        this.size = n;
+        this.stripes = new Stripe[Integer.highestOneBit(2 * writers - 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new Stripe();
+        }
+        this.current = new Snapshot(new CsrGraph(new int[n + 1], new int[0]),
+                new Block[(n + BLOCK_SIZE - 1) >>> BLOCK_SHIFT], 0, 0, 0, 0);
+        this.background = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "graph-maintenance");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Method for returning the number of nodes in the graph.
+     * @return the number of nodes in the graph
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Adds the edge from u to v. It shows up in snapshots taken after this call returns, and
+     * in current() once the background thread has published it. Adding an edge that exists
+     * changes nothing.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at
+     * @throws IllegalArgumentException if a specified node does not exist
+     */
+    public void addEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+        Stripe stripe = stripe();
+        long waiting = 0;
+        synchronized (stripe) {
+            stripe.sources[stripe.count] = u;
+            stripe.destinations[stripe.count] = v;
+            if (++stripe.count == CHUNK) {
+                waiting = enqueue(stripe.detach());
+            }
+        }
+        if (waiting >= PUBLISH_THRESHOLD) {
+            schedulePublish();
+        }
+    }
+
+    /**
+     * Adds a batch of edges, taking the lock of a stripe once per buffer rather than once per
+     * edge.
+     * @param sources the node each edge starts at
+     * @param destinations the node each edge ends at
+     * @param count the number of edges, taken from the start of both arrays
+     * @throws IllegalArgumentException if the arrays are too short or a node does not exist
+     */
+    public void addEdges(int[] sources, int[] destinations, int count) {
+        if (sources == null || destinations == null || count < 0
+                || count > sources.length || count > destinations.length) {
+            throw new IllegalArgumentException("Edge arrays do not hold " + count + " edges");
+        }
+        for (int e = 0; e < count; e++) {
+            checkNode(sources[e]);
+            checkNode(destinations[e]);
+        }
+        Stripe stripe = stripe();
+        int e = 0;
+        while (e < count) {
+            long waiting = 0;
+            synchronized (stripe) {
+                int chunk = Math.min(count - e, CHUNK - stripe.count);
+                System.arraycopy(sources, e, stripe.sources, stripe.count, chunk);
+                System.arraycopy(destinations, e, stripe.destinations, stripe.count, chunk);
+                stripe.count += chunk;
+                e += chunk;
+                if (stripe.count == CHUNK) {
+                    waiting = enqueue(stripe.detach());
+                }
+            }
+            if (waiting >= PUBLISH_THRESHOLD) {
+                schedulePublish();
+            }
+        }
+    }
+
+    /**
+     * Returns the latest published version without waiting. Edges added recently may still
+     * be waiting in the buffers.
+     * @return the latest version
+     */
+    public Snapshot current() {
+        return this.current;
+    }
+
+    /**
+     * Publishes every edge added so far and returns the resulting version. Writers are only
+     * held up while their stripe is emptied.
+     * @return a version with every edge added before this call
+     */
+    public Snapshot snapshot() {
+        synchronized (this.publishLock) {
+            // an edge whose addEdge has returned is in its stripe or queued, since full buffers
+            // are queued before the stripe lock is released; the stripes are emptied first, so
+            // a buffer queued meanwhile is still found in the queue afterwards
+            int count = 0;
+            Stripe[] drained = new Stripe[16];
+            for (Stripe stripe : this.stripes) {
+                Stripe partial;
+                synchronized (stripe) {
+                    partial = stripe.count == 0 ? null : stripe.detach();
+                }
+                if (partial != null) {
+                    if (count == drained.length) {
+                        drained = Arrays.copyOf(drained, 2 * count);
+                    }
+                    drained[count++] = partial;
+                }
+            }
+            for (Stripe full = this.queued.poll(); full != null; full = this.queued.poll()) {
+                this.queuedEdges.addAndGet(-full.count);
+                if (count == drained.length) {
+                    drained = Arrays.copyOf(drained, 2 * count);
+                }
+                drained[count++] = full;
+            }
+            if (count > 0) {
+                this.current = merge(this.current, drained, count);
+            }
+            Snapshot published = this.current;
+            if (published.overlayEdges >= Math.max(COMPACT_MIN_EDGES,
+                    published.base.getEdgeCount() / COMPACT_FRACTION)
+                    && published.edgeCount <= Integer.MAX_VALUE) {
+                scheduleCompaction();
+            }
+            return published;
+        }
+    }
+
+    /**
+     * Publishes every edge added so far and merges the whole graph into a fresh CSR base, on
+     * the calling thread. Writers and readers are not held up while the base is built.
+     * @return a version without overlay, unless edges were published while it was built
+     * @throws IllegalStateException if the graph has more edges than a CSR graph can hold
+     */
+    public Snapshot compact() {
+        synchronized (this.compactLock) {
+            Snapshot from = snapshot();
+            if (from.overlayBlocks == 0) {
+                return from;
+            }
+            GraphEvents.Build event = new GraphEvents.Build();
+            event.begin();
+            CsrGraph base = from.toCsrGraph();
+            GraphEvents.built(event, "ConcurrentGraph.compact", this.size, base.getEdgeCount());
+
+            // blocks merged since the compaction started are newer than the base and stay
+            synchronized (this.publishLock) {
+                Snapshot latest = this.current;
+                Block[] overlay = new Block[latest.overlay.length];
+                long overlayEdges = 0;
+                int overlayBlocks = 0;
+                for (int b = 0; b < overlay.length; b++) {
+                    if (latest.overlay[b] != from.overlay[b]) {
+                        overlay[b] = latest.overlay[b];
+                        overlayEdges += overlay[b].targets.length;
+                        overlayBlocks++;
+                    }
+                }
+                this.current = new Snapshot(base, overlay, overlayBlocks, overlayEdges,
+                        latest.edgeCount, latest.epoch + 1);
+                return this.current;
+            }
+        }
+    }
+
+    /**
+     * Method for picking the stripe of the calling thread.
+     */
+    private Stripe stripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id * 0x9e3779b97f4a7c15L >>> 32);
+        return this.stripes[h & (this.stripes.length - 1)];
+    }
+
+    /**
+     * Method for queueing a full buffer, while the lock of the stripe it came from is held.
+     * @return the number of queued edges
+     */
+    private long enqueue(Stripe full) {
+        this.queued.add(full);
+        return this.queuedEdges.addAndGet(full.count);
+    }
+
+    /**
+     * Method for asking the background thread to publish, unless it has been asked already.
+     */
+    private void schedulePublish() {
+        if (this.publishScheduled.compareAndSet(false, true)) {
+            this.background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ConcurrentGraph.this.publishScheduled.set(false);
+                    snapshot();
+                }
+            });
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (this.compactScheduled.compareAndSet(false, true)) {
+            this.background.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        compact();
+                    } finally {
+                        ConcurrentGraph.this.compactScheduled.set(false);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Method for building the version that adds a set of buffers to another one. The edges
+     * are sorted by source and destination, and every block they touch is rebuilt.
+     * @param old, the version to add the edges to
+     * @param drained, the buffers
+     * @param count, the number of buffers
+     * @return the new version
+     */
+    private static Snapshot merge(Snapshot old, Stripe[] drained, int count) {
+        int edges = 0;
+        for (int i = 0; i < count; i++) {
+            edges += drained[i].count;
+        }
+        long[] keys = new long[edges];
+        int k = 0;
+        for (int i = 0; i < count; i++) {
+            Stripe s = drained[i];
+            for (int e = 0; e < s.count; e++) {
+                keys[k++] = (long) s.sources[e] << 32 | s.destinations[e];
+            }
+        }
+        Arrays.sort(keys);
+
+        Block[] overlay = old.overlay.clone();
+        int overlayBlocks = old.overlayBlocks;
+        long overlayEdges = old.overlayEdges;
+        long edgeCount = old.edgeCount;
+        int from = 0;
+        while (from < keys.length) {
+            int b = (int) (keys[from] >>> 32) >>> BLOCK_SHIFT;
+            int to = from;
+            while (to < keys.length && (int) (keys[to] >>> 32) >>> BLOCK_SHIFT == b) {
+                to++;
+            }
+            Block merged = mergeBlock(old, b, keys, from, to);
+            edgeCount += merged.targets.length - old.blockEdges(b);
+            if (overlay[b] == null) {
+                overlayBlocks++;
+            } else {
+                overlayEdges -= overlay[b].targets.length;
+            }
+            overlayEdges += merged.targets.length;
+            overlay[b] = merged;
+            from = to;
+        }
+        return new Snapshot(old.base, overlay, overlayBlocks, overlayEdges, edgeCount,
+                old.epoch + 1);
+    }
+
+    /**
+     * Method for merging the rows of a block with sorted new edges into a new block, dropping
+     * edges that already exist.
+     */
+    private static Block mergeBlock(Snapshot old, int b, long[] keys, int from, int to) {
+        int first = b << BLOCK_SHIFT;
+        int last = Math.min(old.getSize(), first + BLOCK_SIZE);
+        int[] offsets = new int[last - first + 1];
+        int[] targets = new int[old.blockEdges(b) + (to - from)];
+        int write = 0;
+        int k = from;
+        for (int v = first; v < last; v++) {
+            offsets[v - first] = write;
+            int degree = old.outDegree(v);
+            int j = 0;
+            while (j < degree || (k < to && (int) (keys[k] >>> 32) == v)) {
+                int w;
+                if (k < to && (int) (keys[k] >>> 32) == v
+                        && (j == degree || (int) keys[k] <= old.neighborAt(v, j))) {
+                    w = (int) keys[k++];
+                } else {
+                    w = old.neighborAt(v, j++);
+                }
+                if (write == offsets[v - first] || targets[write - 1] != w) {
+                    targets[write++] = w;
+                }
+            }
+        }
+        offsets[last - first] = write;
+        return new Block(offsets, write < targets.length ? Arrays.copyOf(targets, write) : targets);
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.size) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+    }
+
+    /**
+     * Ingestion buffer of one stripe. Its arrays are handed over whole when it is drained.
+     */
+    private static final class Stripe {
+        int[] sources = new int[CHUNK];
+        int[] destinations = new int[CHUNK];
+        int count;
+
+        Stripe() {
+        }
+
+        private Stripe(int[] sources, int[] destinations, int count) {
+            this.sources = sources;
+            this.destinations = destinations;
+            this.count = count;
+        }
+
+        /**
+         * Method for moving the edges to a new buffer and starting over with empty arrays.
+         */
+        Stripe detach() {
+            Stripe taken = new Stripe(this.sources, this.destinations, this.count);
+            this.sources = new int[CHUNK];
+            this.destinations = new int[CHUNK];
+            this.count = 0;
+            return taken;
+        }
+    }
+
+    /**
+     * The rows of BLOCK_SIZE consecutive vertices in CSR form. Blocks are never changed once
+     * built, so versions share them.
+     */
+    private static final class Block {
+        final int[] offsets;
+        final int[] targets;
+
+        Block(int[] offsets, int[] targets) {
+            this.offsets = offsets;
+            this.targets = targets;
+        }
+    }
+
+    /**
+     * An immutable version of a concurrent graph: a CSR base, with the rows of some vertex
+     * blocks replaced by newer ones. Every {@link Graph} routine can read it from any number
+     * of threads.
+     */
+    public static final class Snapshot extends Graph {
+        private final CsrGraph base;
+        private final int[] baseOffsets;
+        private final int[] baseTargets;
+        private final Block[] overlay;
+        private final int overlayBlocks;
+        private final long overlayEdges;
+        private final long edgeCount;
+        private final long epoch;
+
+        private Snapshot(CsrGraph base, Block[] overlay, int overlayBlocks, long overlayEdges,
+                long edgeCount, long epoch) {
+            super(0);
+            this.base = base;
+            this.baseOffsets = base.offsets();
+            this.baseTargets = base.targets();
+            this.overlay = overlay;
+            this.overlayBlocks = overlayBlocks;
+            this.overlayEdges = overlayEdges;
+            this.edgeCount = edgeCount;
+            this.epoch = epoch;
+        }
+
+        @Override
+        public int getSize() {
+            return this.baseOffsets.length - 1;
+        }
+
+        /**
+         * Method for returning the number of edges in the graph.
+         * @return the number of edges in the graph
+         */
+        public long getEdgeCount() {
+            return this.edgeCount;
+        }
+
+        /**
+         * Returns the number of the version, which grows by one with every version published.
+         * @return the version
+         */
+        @Override
+        public long getVersion() {
+            return this.epoch;
+        }
+
+        @Override
+        public boolean hasEdge(int u, int v) {
+            checkNode(u);
+            checkNode(v);
+            Block block = this.overlay[u >>> BLOCK_SHIFT];
+            if (block == null) {
+                return Arrays.binarySearch(this.baseTargets, this.baseOffsets[u],
+                        this.baseOffsets[u + 1], v) >= 0;
+            }
+            int i = u & (BLOCK_SIZE - 1);
+            return Arrays.binarySearch(block.targets, block.offsets[i], block.offsets[i + 1],
+                    v) >= 0;
+        }
+
+        /**
+         * Snapshots are immutable; add edges to the concurrent graph instead.
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public boolean addEdge(int u, int v) {
+            throw new UnsupportedOperationException("Snapshots cannot be modified");
+        }
+
+        /**
+         * Snapshots are immutable; add edges to the concurrent graph instead.
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public int addEdges(int[] sources, int[] destinations, int count) {
+            throw new UnsupportedOperationException("Snapshots cannot be modified");
+        }
+
+        /**
+         * Snapshots are immutable.
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public boolean removeEdge(int u, int v) {
+            throw new UnsupportedOperationException("Snapshots cannot be modified");
+        }
+
+        @Override
+        public Set<Integer> getNeighbors(int v) {
+            checkNode(v);
+            Set<Integer> neighbors = new TreeSet<Integer>();
+            int degree = outDegree(v);
+            for (int k = 0; k < degree; k++) {
+                neighbors.add(neighborAt(v, k));
+            }
+            return Collections.unmodifiableSet(neighbors);
+        }
+
+        @Override
+        public void forEachNeighbor(int v, IntConsumer action) {
+            checkNode(v);
+            if (action == null) {
+                throw new IllegalArgumentException("Action can't be null");
+            }
+            int degree = outDegree(v);
+            for (int k = 0; k < degree; k++) {
+                action.accept(neighborAt(v, k));
+            }
+        }
+
+        /**
+         * Returns the CSR form of the version: the base itself if no block has been replaced
+         * since the last compaction, and a copy otherwise.
+         * @return the CSR form of the graph
+         * @throws IllegalStateException if the graph has more edges than an array can hold
+         */
+        @Override
+        CsrGraph toCsrGraph() {
+            if (this.overlayBlocks == 0) {
+                return this.base;
+            }
+            if (this.edgeCount > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many edges for a CSR graph");
+            }
+            int n = getSize();
+            int[] offsets = new int[n + 1];
+            int[] targets = new int[(int) this.edgeCount];
+            for (int v = 0; v < n; v++) {
+                Block block = this.overlay[v >>> BLOCK_SHIFT];
+                int degree;
+                if (block == null) {
+                    degree = this.baseOffsets[v + 1] - this.baseOffsets[v];
+                    System.arraycopy(this.baseTargets, this.baseOffsets[v], targets, offsets[v],
+                            degree);
+                } else {
+                    int i = v & (BLOCK_SIZE - 1);
+                    degree = block.offsets[i + 1] - block.offsets[i];
+                    System.arraycopy(block.targets, block.offsets[i], targets, offsets[v],
+                            degree);
+                }
+                offsets[v + 1] = offsets[v] + degree;
+            }
+            return new CsrGraph(offsets, targets);
+        }
+
+        @Override
+        int outDegree(int v) {
+            Block block = this.overlay[v >>> BLOCK_SHIFT];
+            if (block == null) {
+                return this.baseOffsets[v + 1] - this.baseOffsets[v];
+            }
+            int i = v & (BLOCK_SIZE - 1);
+            return block.offsets[i + 1] - block.offsets[i];
+        }
+
+        @Override
+        int neighborAt(int v, int k) {
+            Block block = this.overlay[v >>> BLOCK_SHIFT];
+            if (block == null) {
+                return this.baseTargets[this.baseOffsets[v] + k];
+            }
+            return block.targets[block.offsets[v & (BLOCK_SIZE - 1)] + k];
+        }
+
+        @Override
+        boolean isModifiable() {
+            return false;
+        }
+
+        /**
+         * Returns the number of edges from the vertices of a block.
+         */
+        private int blockEdges(int b) {
+            if (this.overlay[b] != null) {
+                return this.overlay[b].targets.length;
+            }
+            int first = b << BLOCK_SHIFT;
+            int last = Math.min(getSize(), first + BLOCK_SIZE);
+            return this.baseOffsets[last] - this.baseOffsets[first];
+        }
+
+        private void checkNode(int v) {
+            if (v < 0 || v >= getSize()) {
+                throw new IllegalArgumentException("" + v + " not present in the graph");
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntConsumer;
+
+/**
+ * Immutable compressed sparse row (CSR) form of a {@link Graph}. The neighbors of node v are
+ * stored sorted in targets[offsets[v]] through targets[offsets[v + 1] - 1], so every edge costs
+ * a single int and adjacency scans read contiguous memory.
+ */
+public class CsrGraph extends Graph {
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * Creates a CSR graph from prebuilt arrays. The arrays are used as is and must not be
+     * modified afterwards.
+     * @param offsets an array of length n + 1 where offsets[v] is the index in targets of the
+     *        first neighbor of v and offsets[n] is the number of edges
+     * @param targets the neighbors of every node, sorted and duplicate free within each row
+     * @throws IllegalArgumentException if the arrays are null or inconsistent
+     */
+    public CsrGraph(int[] offsets, int[] targets) {
+        super(0);
+        if (offsets == null || targets == null) {
+            throw new IllegalArgumentException("Arrays cannot be null");
+        }
+        if (offsets.length == 0 || offsets[0] != 0
+                || offsets[offsets.length - 1] != targets.length) {
+            throw new IllegalArgumentException("Offsets do not match the number of edges");
+        }
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Builds the CSR form of a graph. The edges are the same ones that were added to g through
+     * addEdge, with the neighbors of every node sorted in increasing order.
+     * @param g the graph to convert
+     * @return the CSR form of g, or g itself if it already is one
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static CsrGraph of(Graph g) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        return g.toCsrGraph();
+    }
+
+    /**
+     * Builds a CSR graph from a list of edges. Duplicate edges are dropped, like addEdge does.
+     * @param n the number of nodes in the graph
+     * @param sources the node each edge starts at
+     * @param destinations the node each edge ends at
+     * @param count the number of edges, taken from the start of both arrays
+     * @return the graph
+     * @throws IllegalArgumentException if the arrays are null or too short, or if an edge uses
+     *         a node outside 0 to n - 1
+     */
+    public static CsrGraph fromEdges(int n, int[] sources, int[] destinations, int count) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of vertices cannot be negative");
+        }
+        if (sources == null || destinations == null || count < 0
+                || count > sources.length || count > destinations.length) {
+            throw new IllegalArgumentException("Edge arrays do not hold " + count + " edges");
+        }
+
+        // count the incoming and outgoing edges of every node
+        GraphEvents.Build event = new GraphEvents.Build();
+        event.begin();
+        int[] offsets = new int[n + 1];
+        int[] byTarget = new int[n + 1];
+        for (int e = 0; e < count; e++) {
+            int u = sources[e];
+            int v = destinations[e];
+            if (u < 0 || u >= n) {
+                throw new IllegalArgumentException("" + u + " not present in the graph");
+            }
+            if (v < 0 || v >= n) {
+                throw new IllegalArgumentException("" + v + " not present in the graph");
+            }
+            offsets[u + 1]++;
+            byTarget[v + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+            byTarget[v + 1] += byTarget[v];
+        }
+
+        // order the edges by target, then stably by source, so every row comes out sorted
+        int[] order = new int[count];
+        for (int e = 0; e < count; e++) {
+            order[byTarget[destinations[e]]++] = e;
+        }
+        int[] next = byTarget;
+        System.arraycopy(offsets, 0, next, 0, n);
+        int[] targets = new int[count];
+        for (int i = 0; i < count; i++) {
+            int e = order[i];
+            targets[next[sources[e]]++] = destinations[e];
+        }
+
+        // drop the duplicates, which are now next to each other, moving the rows down
+        int write = 0;
+        for (int v = 0; v < n; v++) {
+            int start = offsets[v];
+            int end = offsets[v + 1];
+            offsets[v] = write;
+            for (int k = start; k < end; k++) {
+                if (write == offsets[v] || targets[k] != targets[write - 1]) {
+                    targets[write++] = targets[k];
+                }
+            }
+        }
+        offsets[n] = write;
+        if (write < count) {
+            targets = Arrays.copyOf(targets, write);
+        }
+        GraphEvents.built(event, "CsrGraph.fromEdges", n, write);
+        return new CsrGraph(offsets, targets);
+    }
+
+    /**
+     * Builds the reverse of this graph, where every edge u-v becomes v-u. The neighbors of a
+     * node in the reverse graph are thus its predecessors in this graph, in increasing order.
+     * @return the reverse graph
+     */
+    public CsrGraph transpose() {
+        int n = this.getSize();
+
+        // count the incoming edges of every node
+        int[] reverseOffsets = new int[n + 1];
+        for (int k = 0; k < this.targets.length; k++) {
+            reverseOffsets[this.targets[k] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            reverseOffsets[v + 1] += reverseOffsets[v];
+        }
+
+        // place every source in the row of its target
+        int[] next = new int[n];
+        System.arraycopy(reverseOffsets, 0, next, 0, n);
+        int[] reverseTargets = new int[this.targets.length];
+        for (int u = 0; u < n; u++) {
+            for (int k = this.offsets[u]; k < this.offsets[u + 1]; k++) {
+                reverseTargets[next[this.targets[k]]++] = u;
+            }
+        }
+        return new CsrGraph(reverseOffsets, reverseTargets);
+    }
+
+    @Override
+    public int getSize() {
+        return this.offsets.length - 1;
+    }
+
+    /**
+     * Method for returning the number of edges in the graph.
+     * @return the number of edges in the graph
+     */
+    public int getEdgeCount() {
+        return this.targets.length;
+    }
+
+    @Override
+    public boolean hasEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+        return Arrays.binarySearch(this.targets, this.offsets[u], this.offsets[u + 1], v) >= 0;
+    }
+
+    /**
+     * CSR graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEdge(int u, int v) {
+        throw new UnsupportedOperationException("CSR graphs cannot be modified");
+    }
+
+    /**
+     * CSR graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int addEdges(int[] sources, int[] destinations, int count) {
+        throw new UnsupportedOperationException("CSR graphs cannot be modified");
+    }
+
+    /**
+     * CSR graphs are immutable.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(int u, int v) {
+        throw new UnsupportedOperationException("CSR graphs cannot be modified");
+    }
+
+    @Override
+    public Set<Integer> getNeighbors(int v) {
+        checkNode(v);
+        Set<Integer> neighbors = new TreeSet<Integer>();
+        for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+            neighbors.add(this.targets[i]);
+        }
+        return Collections.unmodifiableSet(neighbors);
+    }
+
+    @Override
+    public void forEachNeighbor(int v, IntConsumer action) {
+        checkNode(v);
+        if (action == null) {
+            throw new IllegalArgumentException("Action can't be null");
+        }
+        for (int i = this.offsets[v]; i < this.offsets[v + 1]; i++) {
+            action.accept(this.targets[i]);
+        }
+    }
+
+    @Override
+    int outDegree(int v) {
+        return this.offsets[v + 1] - this.offsets[v];
+    }
+
+    @Override
+    int neighborAt(int v, int k) {
+        return this.targets[this.offsets[v] + k];
+    }
+
+    @Override
+    CsrGraph toCsrGraph() {
+        return this;
+    }
+
+    @Override
+    RowScan scan() {
+        return new Scan();
+    }
+
+    @Override
+    boolean isModifiable() {
+        return false;
+    }
+
+    /**
+     * Returns the row offsets of the graph. The returned array is shared and must not be
+     * modified.
+     * @return the offsets array of length getSize() + 1
+     */
+    int[] offsets() {
+        return this.offsets;
+    }
+
+    /**
+     * Returns the concatenated neighbor rows of the graph. The returned array is shared and must
+     * not be modified.
+     * @return the targets array of length getEdgeCount()
+     */
+    int[] targets() {
+        return this.targets;
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.getSize()) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+    }
+
+    /**
+     * Pass over the rows in place: each row is its slice of the targets array.
+     */
+    private final class Scan implements RowScan {
+        private int node;
+
+        @Override
+        public void reset() {
+            this.node = 0;
+        }
+
+        @Override
+        public int next() {
+            if (this.node >= getSize()) {
+                throw new IllegalStateException("No rows left");
+            }
+            this.node++;
+            return CsrGraph.this.offsets[this.node] - CsrGraph.this.offsets[this.node - 1];
+        }
+
+        @Override
+        public int[] row() {
+            return CsrGraph.this.targets;
+        }
+
+        @Override
+        public int start() {
+            return CsrGraph.this.offsets[this.node - 1];
+        }
+
+        @Override
+        public long edgeCount() {
+            return CsrGraph.this.targets.length;
+        }
+    }
+}
@@ -1,5 +1,5 @@
+import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
 
 /**
  * Class for running Depth-First Search on a given graph.
@@ -28,30 +28,48 @@ public final class DFS {
             throw new IllegalArgumentException("Source not present in graph");
         }
         
-        // DFS algorithm
-        Stack<Integer> s = new Stack<Integer>();
-        marked[src] = true;
+        // DFS algorithm, with a stack that grows as needed since each node is pushed once
+        GraphEvents.Traversal event = new GraphEvents.Traversal();
+        event.begin();
+        long visited = 0;
+        long relaxed = 0;
+        int[] s = new int[16];
+        NeighborCursor neighbors = g.cursor();
         
-        s.push(src);
-        parent[src] = src;
-        while (s.size() != 0) {
-            int v = s.pop();
-            result.add(v);
-            for (int w : g.getNeighbors(v)) {
-                if (!marked[w]) {
-                    parent[w] = v;
-                    marked[w] = true;
-                    s.push(w);
+        // nodes before this one have all been marked/discovered, so the sweep never goes back
+        int unmarked = 0;
+        int root = src;
+        while (root >= 0) {
+            int top = 0;
+            marked[root] = true;
+            s[top++] = root;
+            parent[root] = root;
+            while (top != 0) {
+                int v = s[--top];
+                result.add(v);
+                visited++;
+                neighbors.reset(v);
+                while (neighbors.hasNext()) {
+                    int w = neighbors.next();
+                    relaxed++;
+                    if (!marked[w]) {
+                        parent[w] = v;
+                        marked[w] = true;
+                        if (top == s.length) {
+                            s = Arrays.copyOf(s, 2 * top);
+                        }
+                        s[top++] = w;
+                    }
                 }
             }
-        }
-        
-        // check if there are any unmarked/undiscovered nodes
-        for (int i = 0; i < marked.length; i++) {
-            if (!marked[i]) {
-                dfsImpl(g, i, result, marked, parent);
+            
+            // continue from the first node that has not been marked/discovered
+            while (unmarked < marked.length && marked[unmarked]) {
+                unmarked++;
             }
+            root = unmarked < marked.length ? unmarked : -1;
         }
+        Instrumentation.traversal(event, "DFS.dfsImpl", src, visited, relaxed);
         return result;
     }
 }
\ No newline at end of file
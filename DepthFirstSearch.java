@@ -0,0 +1,177 @@
+import java.util.Arrays;
+
+/**
+ * Depth-first search on explicit int stacks, so the depth of the graph is not limited by the
+ * call stack. The search follows the edges of each node in increasing order, and a search of
+ * the whole graph takes the unreached nodes as roots in a single sweep, so it costs
+ * O(nodes + edges) in total.
+ */
+public final class DepthFirstSearch {
+
+    /**
+     * Searches the nodes reachable from a source.
+     * @param g, the graph to search
+     * @param src, the start/source node
+     * @param visitor, the callbacks to run, or null for none
+     * @return the times, orders and parents, with -1 for the nodes that were not reached
+     * @throws IllegalArgumentException if src is not in the graph
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static DfsResult search(Graph g, int src, DfsVisitor visitor) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+
+        // source not present in graph case
+        if (src > g.getSize() - 1 || src < 0) {
+            throw new IllegalArgumentException("" + src + " is not present in the graph");
+        }
+
+        Search s = new Search(CsrGraph.of(g), visitor);
+        s.fromRoot(src);
+        return s.result();
+    }
+
+    /**
+     * Searches the whole graph, taking every node that is still unreached as a root, in
+     * increasing order.
+     * @param g, the graph to search
+     * @param visitor, the callbacks to run, or null for none
+     * @return the times, orders and parents of every node
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static DfsResult searchAll(Graph g, DfsVisitor visitor) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+
+        Search s = new Search(CsrGraph.of(g), visitor);
+        for (int v = 0; v < s.parents.length; v++) {
+            if (s.parents[v] < 0) {
+                s.fromRoot(v);
+            }
+        }
+        return s.result();
+    }
+
+    /**
+     * Sorts the nodes of a graph topologically.
+     * @param g, the graph
+     * @return every node, each before every node it has an edge to
+     * @throws IllegalArgumentException if the specified graph is null
+     * @throws IllegalStateException if the graph has a cycle
+     */
+    public static int[] topologicalSort(Graph g) {
+        return searchAll(g, null).topologicalOrder();
+    }
+
+    /**
+     * Finds a cycle in a graph.
+     * @param g, the graph
+     * @return the nodes of a cycle in edge order, or an empty array if the graph has none
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public static int[] findCycle(Graph g) {
+        return searchAll(g, null).getCycle();
+    }
+
+    /**
+     * The state of one search. The call stack holds the nodes being searched and, for each,
+     * the position of the next edge to follow.
+     */
+    private static final class Search {
+        private final CsrGraph csr;
+        private final DfsVisitor visitor;
+        private final int[] parents;
+        private final int[] discovery;
+        private final int[] finish;
+        private final int[] preorder;
+        private final int[] postorder;
+        private final int[] callNodes;
+        private final int[] callEdges;
+        private int time;
+        private int discovered;
+        private int finished;
+        private int cycleStart = -1;
+        private int cycleEnd = -1;
+
+        Search(CsrGraph csr, DfsVisitor visitor) {
+            int n = csr.getSize();
+            this.csr = csr;
+            this.visitor = visitor;
+            this.parents = new int[n];
+            this.discovery = new int[n];
+            this.finish = new int[n];
+            this.preorder = new int[n];
+            this.postorder = new int[n];
+            this.callNodes = new int[n];
+            this.callEdges = new int[n];
+            Arrays.fill(this.parents, -1);
+            Arrays.fill(this.discovery, -1);
+            Arrays.fill(this.finish, -1);
+        }
+
+        /**
+         * Method for searching from a root that was not reached yet.
+         */
+        void fromRoot(int root) {
+            int[] offsets = this.csr.offsets();
+            int[] targets = this.csr.targets();
+            int depth = 0;
+            discover(root, root);
+            this.callNodes[0] = root;
+            this.callEdges[0] = offsets[root];
+            while (depth >= 0) {
+                int v = this.callNodes[depth];
+                if (this.callEdges[depth] < offsets[v + 1]) {
+                    int w = targets[this.callEdges[depth]++];
+                    if (this.discovery[w] < 0) {
+                        // descend into w
+                        discover(w, v);
+                        depth++;
+                        this.callNodes[depth] = w;
+                        this.callEdges[depth] = offsets[w];
+                    } else if (this.finish[w] < 0) {
+                        // w is on the call stack, so the edge closes a cycle
+                        if (this.cycleStart < 0) {
+                            this.cycleStart = v;
+                            this.cycleEnd = w;
+                        }
+                        if (this.visitor != null) {
+                            this.visitor.backEdge(v, w);
+                        }
+                    }
+                    continue;
+                }
+
+                // every edge of v is done
+                this.finish[v] = this.time++;
+                this.postorder[this.finished++] = v;
+                if (this.visitor != null) {
+                    this.visitor.finish(v, this.parents[v]);
+                }
+                depth--;
+            }
+        }
+
+        private void discover(int v, int parent) {
+            this.parents[v] = parent;
+            this.discovery[v] = this.time++;
+            this.preorder[this.discovered++] = v;
+            if (this.visitor != null) {
+                this.visitor.discover(v, parent);
+            }
+        }
+
+        DfsResult result() {
+            int[] pre = this.discovered == this.preorder.length
+                    ? this.preorder : Arrays.copyOf(this.preorder, this.discovered);
+            int[] post = this.finished == this.postorder.length
+                    ? this.postorder : Arrays.copyOf(this.postorder, this.finished);
+            return new DfsResult(this.parents, this.discovery, this.finish, pre, post,
+                    this.discovered, this.cycleStart, this.cycleEnd);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * The outcome of a depth-first search: discovery and finish times, the nodes in pre-order and
+ * post-order and the parent of every node, as primitive arrays. Times count discoveries and
+ * finishes together, so they run from 0 to twice the number of reached nodes minus 1, and a
+ * node is an ancestor of another exactly when its interval contains the other's.
+ */
+public class DfsResult {
+    private final int[] parents;
+    private final int[] discovery;
+    private final int[] finish;
+    private final int[] preorder;
+    private final int[] postorder;
+    private final int reached;
+    private final int cycleStart;
+    private final int cycleEnd;
+
+    /**
+     * Creates a result.
+     * @param parents, the parent of every node, the node itself for a root and -1 if not reached
+     * @param discovery, the discovery time of every node, or -1 if not reached
+     * @param finish, the finish time of every node, or -1 if not reached
+     * @param preorder, the reached nodes in the order they were discovered
+     * @param postorder, the reached nodes in the order they were finished
+     * @param reached, the number of reached nodes
+     * @param cycleStart, the start of the first back edge found, or -1 if there was none
+     * @param cycleEnd, the end of the first back edge found, or -1 if there was none
+     */
+    public DfsResult(int[] parents, int[] discovery, int[] finish, int[] preorder,
+            int[] postorder, int reached, int cycleStart, int cycleEnd) {
+        this.parents = parents;
+        this.discovery = discovery;
+        this.finish = finish;
+        this.preorder = preorder;
+        this.postorder = postorder;
+        this.reached = reached;
+        this.cycleStart = cycleStart;
+        this.cycleEnd = cycleEnd;
+    }
+
+    /**
+     * Returns the parent array. The array is not copied.
+     * @return the parent of every node, indexed by node
+     */
+    public int[] getParents() {
+        return this.parents;
+    }
+
+    /**
+     * Returns the discovery times. The array is not copied.
+     * @return the discovery time of every node, indexed by node
+     */
+    public int[] getDiscovery() {
+        return this.discovery;
+    }
+
+    /**
+     * Returns the finish times. The array is not copied.
+     * @return the finish time of every node, indexed by node
+     */
+    public int[] getFinish() {
+        return this.finish;
+    }
+
+    /**
+     * Returns the pre-order. The array is not copied.
+     * @return the reached nodes in the order they were discovered
+     */
+    public int[] getPreorder() {
+        return this.preorder;
+    }
+
+    /**
+     * Returns the post-order. The array is not copied.
+     * @return the reached nodes in the order they were finished
+     */
+    public int[] getPostorder() {
+        return this.postorder;
+    }
+
+    public int getReached() {
+        return this.reached;
+    }
+
+    /**
+     * Method for checking whether the search found a cycle among the reached nodes.
+     * @return true if an edge led back to a node that was not finished
+     */
+    public boolean hasCycle() {
+        return this.cycleStart >= 0;
+    }
+
+    /**
+     * Returns a cycle among the reached nodes, the one closed by the first back edge found.
+     * @return the nodes of the cycle in edge order, each with an edge to the next and the last
+     *         with an edge to the first, or an empty array if there is no cycle
+     */
+    public int[] getCycle() {
+        if (this.cycleStart < 0) {
+            return new int[0];
+        }
+
+        // the tree path from the end of the back edge down to its start
+        int length = 1;
+        for (int v = this.cycleStart; v != this.cycleEnd; v = this.parents[v]) {
+            length++;
+        }
+        int[] cycle = new int[length];
+        for (int v = this.cycleStart, i = length - 1; i >= 0; i--) {
+            cycle[i] = v;
+            v = this.parents[v];
+        }
+        return cycle;
+    }
+
+    /**
+     * Returns the reached nodes in topological order, the reverse of the post-order.
+     * @return the nodes, each before every node it has an edge to
+     * @throws IllegalStateException if the reached nodes contain a cycle
+     */
+    public int[] topologicalOrder() {
+        if (hasCycle()) {
+            throw new IllegalStateException("Graph has a cycle");
+        }
+        int[] order = new int[this.reached];
+        for (int i = 0; i < this.reached; i++) {
+            order[i] = this.postorder[this.reached - 1 - i];
+        }
+        return order;
+    }
+}
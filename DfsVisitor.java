@@ -0,0 +1,31 @@
+/**
+ * Callbacks of a {@link DepthFirstSearch}. Every method does nothing unless overridden, so a
+ * visitor only implements the events it needs.
+ */
+public interface DfsVisitor {
+
+    /**
+     * Called when a node is reached for the first time, before any of its edges is followed.
+     * @param v the node
+     * @param parent the node whose edge led to v, or v itself for the root of a search
+     */
+    default void discover(int v, int parent) {
+    }
+
+    /**
+     * Called when every edge of a node has been followed.
+     * @param v the node
+     * @param parent the node whose edge led to v, or v itself for the root of a search
+     */
+    default void finish(int v, int parent) {
+    }
+
+    /**
+     * Called for an edge to a node that was discovered but is not finished yet, which closes a
+     * cycle.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at, an ancestor of u or u itself
+     */
+    default void backEdge(int u, int v) {
+    }
+}
@@ -0,0 +1,409 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Distance oracle built on a few landmark nodes. For every landmark L it keeps the BFS
+ * distances from L to every node and from every node to L, one byte per node when the
+ * distances fit, two bytes when they fit in a short and four otherwise. By the triangle
+ * inequality, these give lower and upper bounds on d(s, t) in O(landmarks) time without
+ * touching the graph:
+ * <ul>
+ * <li>d(s, t) is at most d(s, L) + d(L, t)</li>
+ * <li>d(s, t) is at least d(L, t) - d(L, s) and d(s, L) - d(t, L)</li>
+ * </ul>
+ * Exact queries first consult the bounds: a lower bound of infinity answers them without a
+ * search, and so does a distance query whose bounds are equal. The rest run the bidirectional
+ * BFS of {@link ShortestPaths}, and recent exact paths are kept in an LRU cache.
+ *
+ * The oracle notices through {@link Graph#getVersion()} when the graph changed. It then drops
+ * the cached paths and recomputes the landmark distances on the next query. The graph must
+ * not be changed while a query runs.
+ */
+public class DistanceOracle {
+    /**
+     * How the landmarks are picked.
+     */
+    public enum Selection {
+        /** the nodes with the most incoming and outgoing edges */
+        DEGREE,
+        /** the nodes with the highest PageRank */
+        PAGERANK
+    }
+
+    public static final int DEFAULT_LANDMARKS = 16;
+    public static final long DEFAULT_MEMORY_BUDGET = 64L << 20;
+    public static final int DEFAULT_CACHE_CAPACITY = 4096;
+
+    // distances at least this large do not fit in the byte and short encodings
+    private static final int BYTE_UNREACHABLE = 0xff;
+    private static final int SHORT_UNREACHABLE = 0xffff;
+
+    // stands for an infinite distance in the bound computations
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    private final Graph graph;
+    private final int landmarkCount;
+    private final Selection selection;
+    private final long memoryBudget;
+    private final Map<Long, int[]> cache;
+
+    private volatile Landmarks landmarks;
+
+    /**
+     * Creates an oracle with 16 landmarks of the highest degree, a 64 MB budget for the
+     * landmark distances and room for 4096 cached paths.
+     * @param g, the graph
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public DistanceOracle(Graph g) {
+        this(g, DEFAULT_LANDMARKS, Selection.DEGREE, DEFAULT_MEMORY_BUDGET, DEFAULT_CACHE_CAPACITY);
+    }
+
+    /**
+     * Creates an oracle.
+     * @param g, the graph
+     * @param landmarkCount, the number of landmarks wanted
+     * @param selection, how the landmarks are picked
+     * @param memoryBudget, the most bytes the landmark distances may use; fewer landmarks are
+     *        kept if they do not fit
+     * @param cacheCapacity, the number of exact paths to keep, or 0 for no cache
+     * @throws IllegalArgumentException if the graph or selection is null, or if a number is
+     *         negative
+     */
+    public DistanceOracle(Graph g, int landmarkCount, Selection selection, long memoryBudget,
+            final int cacheCapacity) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (selection == null) {
+            throw new IllegalArgumentException("Selection can't be null");
+        }
+        if (landmarkCount < 0 || memoryBudget < 0 || cacheCapacity < 0) {
+            throw new IllegalArgumentException("Settings cannot be negative");
+        }
+        this.graph = g;
+        this.landmarkCount = landmarkCount;
+        this.selection = selection;
+        this.memoryBudget = memoryBudget;
+        this.cache = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > cacheCapacity;
+            }
+        };
+        this.landmarks = build();
+    }
+
+    /**
+     * Returns a lower bound on the distance from src to tgt.
+     * @param src the node the path starts at
+     * @param tgt the node the path ends at
+     * @return a lower bound, or Integer.MAX_VALUE if the landmarks prove that there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int lowerBound(int src, int tgt) {
+        Landmarks l = current();
+        checkNode(l, src);
+        checkNode(l, tgt);
+        return l.lowerBound(src, tgt);
+    }
+
+    /**
+     * Returns an upper bound on the distance from src to tgt, the length of the shortest path
+     * through a landmark.
+     * @param src the node the path starts at
+     * @param tgt the node the path ends at
+     * @return an upper bound, or Integer.MAX_VALUE if no landmark is on a path from src to tgt
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int upperBound(int src, int tgt) {
+        Landmarks l = current();
+        checkNode(l, src);
+        checkNode(l, tgt);
+        return l.upperBound(src, tgt);
+    }
+
+    /**
+     * Returns an approximate distance from the landmark bounds alone: the upper bound if some
+     * landmark connects the nodes, and the lower bound otherwise.
+     * @param src the node the path starts at
+     * @param tgt the node the path ends at
+     * @return the approximate distance, or -1 if the landmarks prove that there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int estimate(int src, int tgt) {
+        Landmarks l = current();
+        checkNode(l, src);
+        checkNode(l, tgt);
+        int lower = l.lowerBound(src, tgt);
+        if (lower == INFINITY) {
+            return -1;
+        }
+        int upper = l.upperBound(src, tgt);
+        return upper == INFINITY ? lower : upper;
+    }
+
+    /**
+     * Returns the exact distance from src to tgt.
+     * @param src the node the path starts at
+     * @param tgt the node the path ends at
+     * @return the number of edges on a shortest path, or -1 if there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int distance(int src, int tgt) {
+        Landmarks l = current();
+        checkNode(l, src);
+        checkNode(l, tgt);
+        int[] path;
+        synchronized (this.cache) {
+            path = this.cache.get(((long) src << 32) | tgt);
+        }
+        if (path != null) {
+            return path.length - 1;
+        }
+        int lower = l.lowerBound(src, tgt);
+        if (lower == INFINITY) {
+            return -1;
+        }
+        return lower == l.upperBound(src, tgt) ? lower : l.paths.distance(src, tgt);
+    }
+
+    /**
+     * Returns a shortest path from src to tgt, from the cache if it was asked for recently.
+     * @param src the node the path starts at
+     * @param tgt the node the path ends at
+     * @return the nodes of the path from src to tgt, or an empty array if there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int[] getShortestPath(int src, int tgt) {
+        Landmarks l = current();
+        checkNode(l, src);
+        checkNode(l, tgt);
+        Long key = ((long) src << 32) | tgt;
+        int[] path;
+        synchronized (this.cache) {
+            path = this.cache.get(key);
+        }
+        if (path == null) {
+            path = l.lowerBound(src, tgt) == INFINITY ? new int[0] : l.paths.path(src, tgt);
+            synchronized (this.cache) {
+                // only keep it if the graph did not change in the meantime
+                if (l == this.landmarks) {
+                    this.cache.put(key, path);
+                }
+            }
+        }
+        return path.clone();
+    }
+
+    /**
+     * Returns the landmarks in use.
+     * @return the landmark nodes, in the order they were picked
+     */
+    public int[] getLandmarks() {
+        return current().nodes.clone();
+    }
+
+    /**
+     * Returns the memory used by the landmark distances.
+     * @return the size in bytes, not counting object headers
+     */
+    public long getByteSize() {
+        return current().byteSize;
+    }
+
+    /**
+     * Method for returning landmark distances that match the current graph, recomputing them
+     * and dropping the cached paths if the graph changed.
+     */
+    private Landmarks current() {
+        Landmarks l = this.landmarks;
+        if (l.version == this.graph.getVersion()) {
+            return l;
+        }
+        synchronized (this.cache) {
+            if (this.landmarks.version != this.graph.getVersion()) {
+                this.cache.clear();
+                this.landmarks = build();
+            }
+            return this.landmarks;
+        }
+    }
+
+    /**
+     * Method for picking the landmarks and computing their distances, within the memory budget.
+     */
+    private Landmarks build() {
+        long version = this.graph.getVersion();
+        CsrGraph csr = CsrGraph.of(this.graph);
+        CsrGraph reverse = csr.transpose();
+        int n = csr.getSize();
+
+        // score every node and take the best ones
+        double[] scores = new double[n];
+        if (this.selection == Selection.PAGERANK) {
+            PageRank engine = new PageRank(IncrementalPageRank.DEFAULT_DAMPING,
+                    PageRank.DEFAULT_TOLERANCE, PageRank.DEFAULT_MAX_ITERATIONS,
+                    PageRank.DanglingPolicy.UNIFORM);
+            scores = engine.rank(csr).getRanks();
+        } else {
+            for (int v = 0; v < n; v++) {
+                scores[v] = csr.outDegree(v) + reverse.outDegree(v);
+            }
+        }
+        int[] candidates = RankQuery.topK(scores, this.landmarkCount);
+
+        // distances from each landmark along the edges and to it against them
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        ParallelBFS forward = new ParallelBFS();
+        ParallelBFS backward = new ParallelBFS();
+        int[] nodes = new int[candidates.length];
+        Object[] from = new Object[candidates.length];
+        Object[] to = new Object[candidates.length];
+        int count = 0;
+        long bytes = 0;
+        for (int landmark : candidates) {
+            int[] fromLevels = forward.search(csr, landmark, pool).getLevels();
+            int[] toLevels = backward.search(reverse, landmark, pool).getLevels();
+            Object fromVector = encode(fromLevels);
+            Object toVector = encode(toLevels);
+            long size = byteSize(fromVector) + byteSize(toVector);
+            if (bytes + size > this.memoryBudget) {
+                break;
+            }
+            nodes[count] = landmark;
+            from[count] = fromVector;
+            to[count] = toVector;
+            count++;
+            bytes += size;
+        }
+        return new Landmarks(version, csr, reverse, Arrays.copyOf(nodes, count),
+                Arrays.copyOf(from, count), Arrays.copyOf(to, count), bytes);
+    }
+
+    /**
+     * Method for storing BFS levels in a byte array if they fit, in a short array if they fit
+     * there, and as the int levels themselves otherwise, with -1 for an unreached node.
+     */
+    private static Object encode(int[] levels) {
+        int max = 0;
+        for (int level : levels) {
+            max = Math.max(max, level);
+        }
+        if (max >= SHORT_UNREACHABLE) {
+            return levels;
+        }
+        if (max < BYTE_UNREACHABLE) {
+            byte[] vector = new byte[levels.length];
+            for (int v = 0; v < levels.length; v++) {
+                vector[v] = (byte) (levels[v] < 0 ? BYTE_UNREACHABLE : levels[v]);
+            }
+            return vector;
+        }
+        short[] vector = new short[levels.length];
+        for (int v = 0; v < levels.length; v++) {
+            vector[v] = (short) (levels[v] < 0 ? SHORT_UNREACHABLE : levels[v]);
+        }
+        return vector;
+    }
+
+    private static long byteSize(Object vector) {
+        if (vector instanceof byte[]) {
+            return ((byte[]) vector).length;
+        }
+        if (vector instanceof short[]) {
+            return 2L * ((short[]) vector).length;
+        }
+        return 4L * ((int[]) vector).length;
+    }
+
+    /**
+     * Method for reading a distance from an encoded vector.
+     * @return the distance, or INFINITY if the node was not reached
+     */
+    private static int get(Object vector, int v) {
+        if (vector instanceof byte[]) {
+            int d = ((byte[]) vector)[v] & 0xff;
+            return d == BYTE_UNREACHABLE ? INFINITY : d;
+        }
+        if (vector instanceof short[]) {
+            int d = ((short[]) vector)[v] & 0xffff;
+            return d == SHORT_UNREACHABLE ? INFINITY : d;
+        }
+        int d = ((int[]) vector)[v];
+        return d < 0 ? INFINITY : d;
+    }
+
+    private static void checkNode(Landmarks l, int v) {
+        if (v < 0 || v >= l.csr.getSize()) {
+            throw new IllegalArgumentException("" + v + " is not present in the graph");
+        }
+    }
+
+    /**
+     * The landmark distances of one version of the graph.
+     */
+    private static final class Landmarks {
+        private final long version;
+        private final CsrGraph csr;
+        private final ShortestPaths paths;
+        private final int[] nodes;
+        private final Object[] from;
+        private final Object[] to;
+        private final long byteSize;
+
+        Landmarks(long version, CsrGraph csr, CsrGraph reverse, int[] nodes, Object[] from,
+                Object[] to, long byteSize) {
+            this.version = version;
+            this.csr = csr;
+            this.paths = new ShortestPaths(csr, reverse);
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.byteSize = byteSize;
+        }
+
+        int lowerBound(int s, int t) {
+            int best = 0;
+            for (int i = 0; i < this.nodes.length; i++) {
+                // d(L, t) <= d(L, s) + d(s, t)
+                int ls = get(this.from[i], s);
+                int lt = get(this.from[i], t);
+                if (ls != INFINITY) {
+                    if (lt == INFINITY) {
+                        return INFINITY;
+                    }
+                    best = Math.max(best, lt - ls);
+                }
+
+                // d(s, L) <= d(s, t) + d(t, L)
+                int sl = get(this.to[i], s);
+                int tl = get(this.to[i], t);
+                if (tl != INFINITY) {
+                    if (sl == INFINITY) {
+                        return INFINITY;
+                    }
+                    best = Math.max(best, sl - tl);
+                }
+            }
+            return best;
+        }
+
+        int upperBound(int s, int t) {
+            int best = INFINITY;
+            for (int i = 0; i < this.nodes.length; i++) {
+                int sl = get(this.to[i], s);
+                int lt = get(this.from[i], t);
+                if (sl != INFINITY && lt != INFINITY) {
+                    best = Math.min(best, sl + lt);
+                }
+            }
+            return best;
+        }
+    }
+}
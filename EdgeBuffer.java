@@ -0,0 +1,105 @@
+import java.util.Arrays;
+
+/**
+ * Growable buffer of directed edges stored as two parallel int arrays, used to collect edges
+ * while loading before they are turned into a graph.
+ */
+public class EdgeBuffer {
+    private int[] sources;
+    private int[] destinations;
+    private int size;
+
+    /**
+     * Creates an empty buffer.
+     */
+    public EdgeBuffer() {
+        this(1024);
+    }
+
+    /**
+     * Creates an empty buffer with room for the specified number of edges.
+     * @param capacity the initial capacity
+     * @throws IllegalArgumentException if capacity is negative
+     */
+    public EdgeBuffer(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity cannot be negative");
+        }
+        this.sources = new int[Math.max(capacity, 16)];
+        this.destinations = new int[Math.max(capacity, 16)];
+    }
+
+    /**
+     * Appends the edge u-v. Duplicates are kept until the graph is built.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at
+     */
+    public void add(int u, int v) {
+        if (this.size == this.sources.length) {
+            int capacity = this.sources.length + (this.sources.length >> 1);
+            this.sources = Arrays.copyOf(this.sources, capacity);
+            this.destinations = Arrays.copyOf(this.destinations, capacity);
+        }
+        this.sources[this.size] = u;
+        this.destinations[this.size] = v;
+        this.size++;
+    }
+
+    /**
+     * Appends every edge of another buffer, translating both ends through a mapping.
+     * @param other the buffer to copy
+     * @param mapping the new id of every node id used in other
+     */
+    public void addAll(EdgeBuffer other, int[] mapping) {
+        for (int i = 0; i < other.size; i++) {
+            add(mapping[other.sources[i]], mapping[other.destinations[i]]);
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Removes every edge, keeping the arrays for the next ones.
+     */
+    public void clear() {
+        this.size = 0;
+    }
+
+    /**
+     * Returns the node an edge starts at.
+     * @param e the position of the edge, in the order the edges were added
+     * @return the source of the edge
+     * @throws IllegalArgumentException if there is no edge at that position
+     */
+    public int getSource(int e) {
+        if (e < 0 || e >= this.size) {
+            throw new IllegalArgumentException("No edge at " + e);
+        }
+        return this.sources[e];
+    }
+
+    /**
+     * Returns the node an edge ends at.
+     * @param e the position of the edge, in the order the edges were added
+     * @return the destination of the edge
+     * @throws IllegalArgumentException if there is no edge at that position
+     */
+    public int getDestination(int e) {
+        if (e < 0 || e >= this.size) {
+            throw new IllegalArgumentException("No edge at " + e);
+        }
+        return this.destinations[e];
+    }
+
+    /**
+     * Builds a graph with the collected edges, dropping duplicates.
+     * @param n the number of nodes in the graph
+     * @return the graph
+     * @throws IllegalArgumentException if an edge uses a node outside 0 to n - 1
+     */
+    public CsrGraph toGraph(int n) {
+        return CsrGraph.fromEdges(n, this.sources, this.destinations, this.size);
+    }
+}
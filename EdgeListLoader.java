@@ -0,0 +1,271 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Loads an edge list file, where each line holds two node names separated by spaces or tabs,
+ * in a single pass. The file is memory-mapped and tokenized byte by byte, node ids are given
+ * out in order of first appearance as names are met, and edges go straight into a primitive
+ * {@link EdgeBuffer}. Large files can be split at line boundaries and parsed on several threads.
+ */
+public class EdgeListLoader {
+    // largest part of the file mapped at once
+    private static final int WINDOW = 1 << 30;
+
+    // smallest part of the file worth giving to its own thread
+    private static final long MIN_SPLIT = 1 << 20;
+
+    /**
+     * Loads a graph from an edge list file.
+     * @param fileName the file to read
+     * @return the graph, with node ids given in order of first appearance, and its names
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line does not hold two names
+     */
+    public LoadedGraph load(String fileName) throws IOException {
+        GraphEvents.Load event = new GraphEvents.Load();
+        event.begin();
+        NodeDictionary names = new NodeDictionary();
+        EdgeBuffer edges = new EdgeBuffer();
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        long size;
+        try {
+            FileChannel channel = file.getChannel();
+            size = channel.size();
+            parseRange(channel, 0, size, names, edges);
+        } finally {
+            file.close();
+        }
+        CsrGraph graph = edges.toGraph(names.size());
+        GraphEvents.loaded(event, fileName, size, graph);
+        return new LoadedGraph(graph, names);
+    }
+
+    /**
+     * Loads a graph from an edge list file, parsing parts of the file on several threads. The
+     * parts are merged in file order, so the node ids are the same as with {@link #load(String)}.
+     * @param fileName the file to read
+     * @param pool the pool to parse on
+     * @return the graph, with node ids given in order of first appearance, and its names
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line does not hold two names or the pool is null
+     */
+    public LoadedGraph load(String fileName, ForkJoinPool pool) throws IOException {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null");
+        }
+        GraphEvents.Load event = new GraphEvents.Load();
+        event.begin();
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            int parts = (int) Math.max(1, Math.min(pool.getParallelism(), size / MIN_SPLIT));
+
+            // move each split point to the start of the next line
+            long[] bounds = new long[parts + 1];
+            for (int p = 1; p < parts; p++) {
+                bounds[p] = Math.max(bounds[p - 1], lineStart(channel, size * p / parts));
+            }
+            bounds[parts] = size;
+
+            // parse every part with its own names and edges
+            List<ParsePart> tasks = new ArrayList<ParsePart>();
+            for (int p = 0; p < parts; p++) {
+                tasks.add(new ParsePart(channel, bounds[p], bounds[p + 1]));
+            }
+            for (ParsePart task : tasks) {
+                pool.execute(task);
+            }
+
+            // merge the parts in file order so ids follow first appearance
+            NodeDictionary names = new NodeDictionary();
+            EdgeBuffer edges = new EdgeBuffer();
+            for (ParsePart task : tasks) {
+                task.join();
+                if (task.failure != null) {
+                    throw task.failure;
+                }
+                ByteBuffer localBytes = task.names.bytes();
+                int[] mapping = new int[task.names.size()];
+                for (int id = 0; id < mapping.length; id++) {
+                    mapping[id] = names.intern(localBytes, task.names.start(id),
+                            task.names.start(id + 1));
+                }
+                edges.addAll(task.edges, mapping);
+            }
+            CsrGraph graph = edges.toGraph(names.size());
+            GraphEvents.loaded(event, fileName, size, graph);
+            return new LoadedGraph(graph, names);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Method for parsing the lines between two offsets of a file. The range is mapped in windows
+     * that end at a line break, so no line is ever split across two windows.
+     * @param channel, the file
+     * @param from, the offset of the first line
+     * @param to, the offset after the last line
+     * @param names, the table to intern node names in
+     * @param edges, the buffer to add the edges to
+     * @throws IOException if the file cannot be read
+     */
+    static void parseRange(FileChannel channel, long from, long to, NodeDictionary names,
+            EdgeBuffer edges) throws IOException {
+        long position = from;
+        while (position < to) {
+            int length = (int) Math.min(WINDOW, to - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+
+            // stop the window after its last line break unless it reaches the end
+            int end = length;
+            if (position + length < to) {
+                while (end > 0 && window.get(end - 1) != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    throw new IllegalArgumentException("Line longer than " + WINDOW + " bytes");
+                }
+            }
+            parseLines(window, end, names, edges);
+            position += end;
+        }
+    }
+
+    /**
+     * Method for parsing whole lines from the start of a buffer. Every line must hold two names
+     * separated by spaces or tabs; anything after the second name and empty lines are skipped.
+     * @param buf, the bytes to parse
+     * @param end, the index after the last line
+     * @param names, the table to intern node names in
+     * @param edges, the buffer to add the edges to
+     */
+    static void parseLines(ByteBuffer buf, int end, NodeDictionary names, EdgeBuffer edges) {
+        int pos = 0;
+        while (pos < end) {
+            // first name
+            pos = skipBlanks(buf, pos, end);
+            if (pos == end) {
+                break;
+            }
+            if (buf.get(pos) == '\n') {
+                pos++;
+                continue;
+            }
+            int start1 = pos;
+            pos = skipName(buf, pos, end);
+            int end1 = pos;
+
+            // second name
+            pos = skipBlanks(buf, pos, end);
+            if (pos == end || buf.get(pos) == '\n') {
+                throw new IllegalArgumentException("Line without two nodes: "
+                        + text(buf, start1, end1));
+            }
+            int start2 = pos;
+            pos = skipName(buf, pos, end);
+            int end2 = pos;
+
+            // rest of the line
+            while (pos < end && buf.get(pos) != '\n') {
+                pos++;
+            }
+            int u = names.intern(buf, start1, end1);
+            int v = names.intern(buf, start2, end2);
+            edges.add(u, v);
+        }
+    }
+
+    /**
+     * Method for finding the first line start at or after an offset of a file.
+     * @param channel, the file
+     * @param offset, the offset to search from
+     * @return the offset after the first line break at or after offset - 1, or the file size
+     * @throws IOException if the file cannot be read
+     */
+    static long lineStart(FileChannel channel, long offset) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(1 << 12);
+        long position = Math.max(0, offset - 1);
+        while (true) {
+            buf.clear();
+            int read = channel.read(buf, position);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    private static int skipBlanks(ByteBuffer buf, int pos, int end) {
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b != ' ' && b != '\t' && b != '\r') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static int skipName(ByteBuffer buf, int pos, int end) {
+        while (pos < end) {
+            byte b = buf.get(pos);
+            if (b == ' ' || b == '\t' || b == '\r' || b == '\n') {
+                break;
+            }
+            pos++;
+        }
+        return pos;
+    }
+
+    private static String text(ByteBuffer buf, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buf.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses one part of a file into its own name table and edge buffer.
+     */
+    private static final class ParsePart extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long from;
+        private final long to;
+        private final NodeDictionary names = new NodeDictionary();
+        private final EdgeBuffer edges = new EdgeBuffer();
+        private IOException failure;
+
+        ParsePart(FileChannel channel, long from, long to) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                parseRange(this.channel, this.from, this.to, this.names, this.edges);
+            } catch (IOException e) {
+                this.failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Read-only node dictionary that stores the names front-coded. Domains share long suffixes
+ * like ".com" or ".upenn.edu", so the names are reversed and sorted, which puts those suffixes
+ * at the front, and split into buckets of 16. The first name of a bucket is stored whole and
+ * every other one as the length it shares with the previous name plus the remaining bytes.
+ * Lookups decode at most one bucket into a local buffer, so any number of threads can use the
+ * dictionary at once.
+ */
+public final class FrontCodedDictionary {
+    private static final int BUCKET = 16;
+
+    private final byte[] data;
+    private final int[] bucketStarts;
+    private final int[] rankOf;
+    private final int[] idAt;
+    private final int maxLength;
+
+    /**
+     * Builds the front-coded form of a dictionary.
+     * @param dictionary the dictionary to copy
+     */
+    FrontCodedDictionary(NodeDictionary dictionary) {
+        int n = dictionary.size();
+        ByteBuffer pool = dictionary.bytes();
+
+        // reverse every name so shared suffixes become shared prefixes
+        final byte[][] keys = new byte[n][];
+        int longest = 0;
+        for (int id = 0; id < n; id++) {
+            int start = dictionary.start(id);
+            int length = dictionary.start(id + 1) - start;
+            byte[] key = new byte[length];
+            for (int i = 0; i < length; i++) {
+                key[i] = pool.get(start + length - 1 - i);
+            }
+            keys[id] = key;
+            longest = Math.max(longest, length);
+        }
+        this.maxLength = longest;
+
+        // sort the ids by their reversed names
+        Integer[] order = new Integer[n];
+        for (int id = 0; id < n; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareBytes(keys[a], keys[a].length, keys[b]);
+            }
+        });
+        this.idAt = new int[n];
+        this.rankOf = new int[n];
+        for (int rank = 0; rank < n; rank++) {
+            this.idAt[rank] = order[rank];
+            this.rankOf[order[rank]] = rank;
+        }
+
+        // write the buckets
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.bucketStarts = new int[(n + BUCKET - 1) / BUCKET];
+        byte[] previous = null;
+        for (int rank = 0; rank < n; rank++) {
+            byte[] key = keys[this.idAt[rank]];
+            if (rank % BUCKET == 0) {
+                this.bucketStarts[rank / BUCKET] = out.size();
+                writeVarint(out, key.length);
+                out.write(key, 0, key.length);
+            } else {
+                int shared = 0;
+                int limit = Math.min(previous.length, key.length);
+                while (shared < limit && previous[shared] == key[shared]) {
+                    shared++;
+                }
+                writeVarint(out, shared);
+                writeVarint(out, key.length - shared);
+                out.write(key, shared, key.length - shared);
+            }
+            previous = key;
+        }
+        this.data = out.toByteArray();
+    }
+
+    /**
+     * Returns the id of a name.
+     * @param name the name
+     * @return the id of the name, or -1 if it is not in the dictionary
+     */
+    public int getId(String name) {
+        if (name == null || this.idAt.length == 0) {
+            return -1;
+        }
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        byte[] key = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            key[i] = bytes[bytes.length - 1 - i];
+        }
+
+        // find the last bucket whose first name is not after the key
+        byte[] buf = new byte[Math.max(this.maxLength, 1)];
+        int lo = 0;
+        int hi = this.bucketStarts.length - 1;
+        while (lo < hi) {
+            int mid = (lo + hi + 1) >>> 1;
+            long head = readVarint(this.bucketStarts[mid]);
+            int length = (int) (head >>> 32);
+            if (compareBytes(this.data, (int) head, length, key) <= 0) {
+                lo = mid;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        // decode the bucket until the key is found or passed
+        int first = lo * BUCKET;
+        int last = Math.min(first + BUCKET, this.idAt.length);
+        int pos = this.bucketStarts[lo];
+        int length = 0;
+        for (int rank = first; rank < last; rank++) {
+            int shared = 0;
+            if (rank != first) {
+                long sharedAt = readVarint(pos);
+                shared = (int) (sharedAt >>> 32);
+                pos = (int) sharedAt;
+            }
+            long suffixAt = readVarint(pos);
+            int suffix = (int) (suffixAt >>> 32);
+            pos = (int) suffixAt;
+            System.arraycopy(this.data, pos, buf, shared, suffix);
+            pos += suffix;
+            length = shared + suffix;
+            int cmp = compareBytes(buf, length, key);
+            if (cmp == 0) {
+                return this.idAt[rank];
+            }
+            if (cmp > 0) {
+                break;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the name with the specified id.
+     * @param id the id
+     * @return the name
+     * @throws IllegalArgumentException if no name has the specified id
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= this.rankOf.length) {
+            throw new IllegalArgumentException("" + id + " not present in the dictionary");
+        }
+        int rank = this.rankOf[id];
+        int first = rank - rank % BUCKET;
+        byte[] buf = new byte[this.maxLength];
+        int pos = this.bucketStarts[rank / BUCKET];
+        int length = 0;
+        for (int r = first; r <= rank; r++) {
+            int shared = 0;
+            if (r != first) {
+                long sharedAt = readVarint(pos);
+                shared = (int) (sharedAt >>> 32);
+                pos = (int) sharedAt;
+            }
+            long suffixAt = readVarint(pos);
+            int suffix = (int) (suffixAt >>> 32);
+            pos = (int) suffixAt;
+            System.arraycopy(this.data, pos, buf, shared, suffix);
+            pos += suffix;
+            length = shared + suffix;
+        }
+
+        // undo the reversal
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buf[length - 1 - i];
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method for returning the number of names in the dictionary.
+     * @return the number of names
+     */
+    public int size() {
+        return this.idAt.length;
+    }
+
+    /**
+     * Returns the memory used by the encoded names and the id tables.
+     * @return the size in bytes, not counting object headers
+     */
+    public long getByteSize() {
+        return this.data.length + 4L * (this.bucketStarts.length + this.rankOf.length
+                + this.idAt.length);
+    }
+
+    /**
+     * Method for reading a varint from the encoded names.
+     * @param pos, the index of the first byte of the varint
+     * @return the value in the upper 32 bits and the index after the varint in the lower ones
+     */
+    private long readVarint(int pos) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = this.data[pos++];
+            value |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return ((long) value << 32) | pos;
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7f) != 0) {
+            out.write((value & 0x7f) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int compareBytes(byte[] a, int length, byte[] b) {
+        return compareBytes(a, 0, length, b);
+    }
+
+    /**
+     * Method for comparing length bytes of a starting at from with all of b, unsigned and
+     * lexicographically.
+     */
+    private static int compareBytes(byte[] a, int from, int length, byte[] b) {
+        int limit = Math.min(length, b.length);
+        for (int i = 0; i < limit; i++) {
+            int cmp = (a[from + i] & 0xff) - (b[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - b.length;
+    }
+}
@@ -1,19 +1,29 @@
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.function.IntConsumer;
 
 /**
  * Class for an undirected graph. Integers are used to identify nodes 
  * (i.e. the nodes are labeled 0 through n-1).
  */
 public class Graph {
-    private List<ArrayList<Integer>> adjacencyList;
+    // rows longer than this get a hash index so that hasEdge stays constant time
+    static final int INDEX_THRESHOLD = 16;
+    
+    // the neighbors of v are the first degrees[v] entries of adjacency[v], in increasing order
+    // unless unsorted[v] is set, in which case they are sorted when first read in order
+    private int[][] adjacency;
+    private int[] degrees;
+    private boolean[] unsorted;
+    private int[][] edgeIndex;
     private int size;
     
+    // number of changes made to the edges, so that derived data can tell it is out of date
+    private long version;
+    
     /**
      * Initializes a graph of size n. All valid nodes in this graph thus have integer
      * between 0 to n (including 0).
@@ -26,13 +36,12 @@ public class Graph {
             throw new IllegalArgumentException("Number of vertices cannot be negative");
         }
         
-        // make the adjacency list of each edge empty
-        this.adjacencyList = new ArrayList<ArrayList<Integer>>();
-        this.size = 0;
-        for (int i = 0; i < n; i++) {
-            this.adjacencyList.add(new ArrayList<Integer>());
-            this.size += 1;
-        }
+        // every row starts out empty and is allocated on its first edge
+        this.adjacency = new int[n][];
+        this.degrees = new int[n];
+        this.unsorted = new boolean[n];
+        this.edgeIndex = new int[n][];
+        this.size = n;
     }
 
     /**
@@ -52,24 +61,16 @@ public class Graph {
      */
     public boolean hasEdge(int u, int v) {
         // u not present in graph case
-        if (u < 0 || u >= this.adjacencyList.size()) {
+        if (u < 0 || u >= this.size) {
             throw new IllegalArgumentException("" + u + " not present in the graph");
         }
         
         // v not present in graph case
-        if (v < 0 || v >= this.adjacencyList.size()) {
+        if (v < 0 || v >= this.size) {
             throw new IllegalArgumentException("" + v + " not present in the graph");
         }
         
-        boolean uvFound = false;
-        
-        for (Integer a : this.adjacencyList.get(u)) {
-            if (a.equals(v)) {
-                uvFound = true;
-            }
-        }
-        
-        return uvFound;
+        return this.contains(u, v);
     }
 
     /**
@@ -82,24 +83,109 @@ public class Graph {
      */
     public boolean addEdge(int u, int v) {
         // u not present in graph case
-        if (u < 0 || u >= this.adjacencyList.size()) {
+        if (u < 0 || u >= this.size) {
             throw new IllegalArgumentException("" + u + " not present in the graph");
         }
         
         // v not present in graph case
-        if (v < 0 || v >= this.adjacencyList.size()) {
+        if (v < 0 || v >= this.size) {
             throw new IllegalArgumentException("" + v + " not present in the graph");
         }
         
-        boolean found = this.hasEdge(u, v);
+        if (this.contains(u, v)) {
+            return false;
+        }
+        this.insertEdge(u, v);
+        return true;
+    }
+
+    /**
+     * Adds a batch of edges. The batch is sorted by source and target with two counting-sort
+     * passes, so duplicates inside the batch are next to each other and dropped without a
+     * lookup, and each remaining edge costs a single constant-time membership check.
+     * @param sources the node each edge starts at
+     * @param destinations the node each edge ends at
+     * @param count the number of edges, taken from the start of both arrays
+     * @return the number of edges that were not in the graph yet
+     * @throws IllegalArgumentException if the arrays are too short or a node does not exist
+     */
+    public int addEdges(int[] sources, int[] destinations, int count) {
+        return this.addAll(CsrGraph.fromEdges(this.size, sources, destinations, count));
+    }
+
+    /**
+     * Method for adding every edge of a CSR graph with the same nodes. Empty rows take the
+     * sorted, duplicate-free row of the batch as a whole.
+     * @param batch, the edges to add
+     * @return the number of edges that were not in the graph yet
+     */
+    int addAll(CsrGraph batch) {
+        int[] offsets = batch.offsets();
+        int[] targets = batch.targets();
+        int added = 0;
+        for (int u = 0; u < this.size; u++) {
+            int start = offsets[u];
+            int end = offsets[u + 1];
+            if (this.degrees[u] == 0 && end > start) {
+                int[] row = Arrays.copyOfRange(targets, start, end);
+                this.adjacency[u] = row;
+                this.degrees[u] = row.length;
+                this.unsorted[u] = false;
+                this.edgeIndex[u] = row.length > INDEX_THRESHOLD ? buildIndex(row, row.length) : null;
+                added += row.length;
+                this.version++;
+                continue;
+            }
+            for (int k = start; k < end; k++) {
+                if (!this.contains(u, targets[k])) {
+                    this.insertEdge(u, targets[k]);
+                    added++;
+                }
+            }
+        }
+        return added;
+    }
+
+    /**
+     * Removes the edge between nodes u and v if it exists.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at
+     * @return true if the graph changed as a result of this call, false otherwise (i.e. if
+     *         the edge was not present)
+     * @throws IllegalArgumentException if a specified node does not exist
+     */
+    public boolean removeEdge(int u, int v) {
+        // u not present in graph case
+        if (u < 0 || u >= this.size) {
+            throw new IllegalArgumentException("" + u + " not present in the graph");
+        }
+        
+        // v not present in graph case
+        if (v < 0 || v >= this.size) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
         
-        if (!found) {
-            this.adjacencyList.get(u).add(new Integer(v));
-            return true;
-        } else {
+        if (!this.contains(u, v)) {
             return false;
         }
         
+        // an unsorted row fills the gap with its last edge, a sorted one closes it
+        int[] row = this.adjacency[u];
+        int degree = this.degrees[u];
+        if (this.unsorted[u]) {
+            int position = 0;
+            while (row[position] != v) {
+                position++;
+            }
+            row[position] = row[degree - 1];
+        } else {
+            int position = Arrays.binarySearch(row, 0, degree, v);
+            System.arraycopy(row, position + 1, row, position, degree - position - 1);
+        }
+        this.degrees[u] = degree - 1;
+        this.edgeIndex[u] = degree - 1 > INDEX_THRESHOLD ? buildIndex(row, degree - 1) : null;
+        this.version++;
+        return true;
     }
 
     /**
@@ -111,76 +197,245 @@ public class Graph {
      */
     public Set<Integer> getNeighbors(int v) {
         // v not present case
-        if (v < 0 || v >= this.adjacencyList.size()) {
+        if (v < 0 || v >= this.size) {
             throw new IllegalArgumentException("" + v + " not present in the graph");
         }
         
         Set<Integer> neighbors = new TreeSet<Integer>();
-        for (Integer a : this.adjacencyList.get(v)) {
-            neighbors.add(a);
+        for (int k = 0; k < this.degrees[v]; k++) {
+            neighbors.add(this.adjacency[v][k]);
         }
         return Collections.unmodifiableSet(neighbors);
     }
     
-    public Map<Integer, Double> pageRank() {
-        Map<Integer, Double> ranks = new HashMap<Integer, Double>();
-        Map<Integer, Double> prevRanks = new HashMap<Integer, Double>();
-        Map<Integer, Double> rankDiff = new HashMap<Integer, Double>();
-        
-        // initialize the rank values
-        for (int i = 0; i < this.size; i++) {
-            ranks.put(i, 1.0 / this.size);
-            prevRanks.put(i, 1.0 / this.size);
+    /**
+     * Returns the number of neighbors of the specified node in constant time, without building
+     * the neighbor set.
+     * @param v the node
+     * @return the number of neighbors of v
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    public int degree(int v) {
+        // v not present case
+        if (v < 0 || v >= this.getSize()) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
         }
         
-        // initialize the rank-difference values
-        for (int i = 0; i < this.size; i++) {
-            rankDiff.put(i, 0.0);
+        return this.outDegree(v);
+    }
+    
+    /**
+     * Passes every neighbor of the specified node to an action, in increasing order, without
+     * boxing or building the neighbor set.
+     * @param v the node
+     * @param action what to do with each neighbor
+     * @throws IllegalArgumentException if the specified node does not exist or the action is
+     *         null
+     */
+    public void forEachNeighbor(int v, IntConsumer action) {
+        int degree = this.degree(v);
+        if (action == null) {
+            throw new IllegalArgumentException("Action can't be null");
         }
-        
-        
-        do {
-            // compute the the change of each rank
-            for (int i = 0; i < this.size; i++) {
-                int numNeighbors = this.adjacencyList.get(i).size();
-                for (int neighbor : this.adjacencyList.get(i)) {
-                    double currDiff = rankDiff.get(neighbor);
-                    rankDiff.put(neighbor, currDiff + ranks.get(i) / numNeighbors);
-                }
+        for (int k = 0; k < degree; k++) {
+            action.accept(this.neighborAt(v, k));
+        }
+    }
+    
+    /**
+     * Returns a cursor over the neighbors of nodes of this graph. One cursor can be reset to
+     * any number of nodes, so a traversal needs a single one.
+     * @return a new cursor, positioned on no node
+     */
+    public NeighborCursor cursor() {
+        return new NeighborCursor(this);
+    }
+    
+    /**
+     * Returns the version of the edges, which changes every time an edge is added or removed.
+     * Results computed from the graph can keep the version they saw to tell whether they are
+     * still up to date.
+     * @return the number of changes made to the graph so far
+     */
+    public long getVersion() {
+        return this.version;
+    }
+    
+    /**
+     * Returns the number of outgoing edges of the specified node. Used by the ranking loop so
+     * that subclasses with a different edge layout can share it. Every subclass keeps the
+     * neighbors of a node in increasing order.
+     * @param v the node
+     * @return the out-degree of v
+     */
+    int outDegree(int v) {
+        return this.degrees[v];
+    }
+    
+    /**
+     * Returns the k-th outgoing neighbor of the specified node.
+     * @param v the node
+     * @param k the position in the neighbor list, between 0 and outDegree(v) - 1
+     * @return the k-th neighbor of v
+     */
+    int neighborAt(int v, int k) {
+        if (this.unsorted[v]) {
+            this.sortRow(v);
+        }
+        return this.adjacency[v][k];
+    }
+    
+    /**
+     * Returns whether addEdge and removeEdge may change this graph. Read-only subclasses
+     * return false, so code that updates a graph can reject them up front.
+     * @return true if edges can be added and removed
+     */
+    boolean isModifiable() {
+        return true;
+    }
+    
+    /**
+     * Builds the CSR form of this graph for {@link CsrGraph#of} by reading every row through
+     * neighborAt. Subclasses that can produce it more directly override this.
+     * @return the CSR form of the graph
+     */
+    CsrGraph toCsrGraph() {
+        // compute the start of each node's row
+        GraphEvents.Build event = new GraphEvents.Build();
+        event.begin();
+        int n = this.getSize();
+        int[] offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + this.outDegree(v);
+        }
+
+        // copy each row, which neighborAt returns in increasing order
+        int[] targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int start = offsets[v];
+            int degree = offsets[v + 1] - start;
+            for (int k = 0; k < degree; k++) {
+                targets[start + k] = this.neighborAt(v, k);
             }
-            
-            // apply the change on each node's rank
-            for (int i = 0; i < this.size; i++) {
-                int numNeighbors = this.adjacencyList.get(i).size();
-                prevRanks.put(i, ranks.get(i));
-                if (numNeighbors != 0) {
-                    ranks.put(i, rankDiff.get(i));
-                } else {
-                    ranks.put(i, ranks.get(i) + rankDiff.get(i));
+        }
+        GraphEvents.built(event, "CsrGraph.of", n, targets.length);
+        return new CsrGraph(offsets, targets);
+    }
+    
+    /**
+     * Returns a pass over the rows of this graph in node order. Graphs whose rows are cheaper
+     * to stream than to copy override this; the others scan their CSR form.
+     * @return a new scan, positioned before node 0
+     */
+    RowScan scan() {
+        return this.toCsrGraph().scan();
+    }
+    
+    /**
+     * Computes the PageRank of every node with the default settings of {@link PageRank}.
+     * @return a mapping of each node to its rank
+     */
+    public Map<Integer, Double> pageRank() {
+        return new PageRank().rank(this).toMap();
+    }
+    
+    /**
+     * Method for checking whether the edge u-v exists, for nodes known to be valid. Short rows
+     * are scanned and long rows go through their hash index.
+     * @param u, a node
+     * @param v, a node
+     * @return true if the edge u-v is in the graph
+     */
+    private boolean contains(int u, int v) {
+        int[] index = this.edgeIndex[u];
+        if (index != null) {
+            int mask = index.length - 1;
+            for (int slot = mix(v) & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+                if (index[slot] == v + 1) {
+                    return true;
                 }
             }
-            
-            // reset the changes to zero
-            for (int i = 0; i < this.size; i++) {
-                rankDiff.put(i, 0.0);
+            return false;
+        }
+        int[] row = this.adjacency[u];
+        for (int k = 0; k < this.degrees[u]; k++) {
+            if (row[k] == v) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Method for appending the edge u-v, which must not exist yet, to the row of u. An edge
+     * that breaks the order only marks the row as unsorted, so building a row one edge at a
+     * time costs amortized constant time per edge in any order.
+     * @param u, the node the edge starts at
+     * @param v, the node the edge ends at
+     */
+    private void insertEdge(int u, int v) {
+        int[] row = this.adjacency[u];
+        int degree = this.degrees[u];
+        if (row == null) {
+            row = new int[4];
+        } else if (degree == row.length) {
+            row = Arrays.copyOf(row, degree * 2);
+        }
+        if (degree > 0 && row[degree - 1] > v) {
+            this.unsorted[u] = true;
+        }
+        row[degree] = v;
+        this.version++;
+        this.adjacency[u] = row;
+        this.degrees[u] = degree + 1;
+        
+        // keep the index of a long row up to date, growing it once it is half full
+        int[] index = this.edgeIndex[u];
+        if (degree + 1 > INDEX_THRESHOLD) {
+            if (index == null || 2 * (degree + 1) > index.length) {
+                this.edgeIndex[u] = buildIndex(row, degree + 1);
+            } else {
+                insert(index, v);
             }
-        } while (computeDiff(prevRanks, ranks) >= 0.00001);         // repeat loop for as long as 
-                                                                    // the ranks differ by more 
-                                                                    // than 0.00001 
-        return ranks;
+        }
     }
     
     /**
-     * Method for checking how much the pagerank values of each node have changed
-     * @param prevRanks, the previous ranks of each node
-     * @param ranks, the current ranks of each node
-     * @return the average of the differences between the previous and current ranks
+     * Method for sorting a row that edges were appended to out of order. Sorting does not
+     * change the edges, so the version and the hash index stay as they are.
+     * @param v, the node
      */
-    private double computeDiff(Map<Integer, Double> prevRanks, Map<Integer, Double> ranks) {
-        double avg = 0.0;
-        for (int i = 0; i < this.size; i++) {
-            avg += Math.abs(ranks.get(i) - prevRanks.get(i)) / this.size;
+    private void sortRow(int v) {
+        Arrays.sort(this.adjacency[v], 0, this.degrees[v]);
+        this.unsorted[v] = false;
+    }
+    
+    /**
+     * Method for building the hash index of a row, an open-addressing table of node + 1 with
+     * 0 marking an empty slot, at most a quarter full.
+     * @param row, the row
+     * @param degree, the number of edges in the row
+     * @return the index
+     */
+    private static int[] buildIndex(int[] row, int degree) {
+        int[] index = new int[Integer.highestOneBit(Math.max(degree, 1)) * 4];
+        for (int k = 0; k < degree; k++) {
+            insert(index, row[k]);
         }
-        return avg;
+        return index;
+    }
+    
+    private static void insert(int[] index, int v) {
+        int mask = index.length - 1;
+        int slot = mix(v) & mask;
+        while (index[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[slot] = v + 1;
+    }
+    
+    private static int mix(int v) {
+        int h = v * 0x9e3779b9;
+        return h ^ (h >>> 16);
     }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Java Flight Recorder events for the phases of a ranking job: loading an edge list, building
+ * a graph, ranking it and searching it. Each event measures one phase from begin() to
+ * commit(). Unless a recording enables them, an event costs a few instructions per phase and
+ * nothing inside the loops. Record them with -XX:StartFlightRecording or jcmd JFR.start and
+ * look for the "PageRank" category.
+ */
+final class GraphEvents {
+
+    private GraphEvents() {
+    }
+
+    /**
+     * Method for ending a load and committing its event if a recording wants it.
+     */
+    static void loaded(Load event, String file, long bytes, CsrGraph graph) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.file = file;
+            event.bytes = bytes;
+            event.nodes = graph.getSize();
+            event.edges = graph.getEdgeCount();
+            event.commit();
+        }
+    }
+
+    /**
+     * Method for ending a build and committing its event if a recording wants it.
+     */
+    static void built(Build event, String representation, int nodes, long edges) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.representation = representation;
+            event.nodes = nodes;
+            event.edges = edges;
+            event.commit();
+        }
+    }
+
+    /**
+     * Method for ending a PageRank run and committing its event if a recording wants it.
+     */
+    static void ranked(Rank event, String solver, int nodes, long edges,
+            PageRankResult result) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.solver = solver;
+            event.nodes = nodes;
+            event.edges = edges;
+            event.iterations = result.getIterations();
+            event.residual = result.getResidual();
+            event.converged = result.isConverged();
+            event.edgesProcessed = result.getEdgesProcessed();
+            event.commit();
+        }
+    }
+
+    @Name("pagerank.Load")
+    @Label("Load Edge List")
+    @Category("PageRank")
+    @Description("Parsing an edge list file into a graph")
+    static final class Load extends Event {
+        @Label("File")
+        String file;
+
+        @Label("File Size")
+        @DataAmount
+        long bytes;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Edges")
+        long edges;
+    }
+
+    @Name("pagerank.Build")
+    @Label("Build Graph")
+    @Category("PageRank")
+    @Description("Turning edges or another graph into a graph")
+    static final class Build extends Event {
+        @Label("Representation")
+        String representation;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Edges")
+        long edges;
+    }
+
+    @Name("pagerank.Rank")
+    @Label("Rank Graph")
+    @Category("PageRank")
+    @Description("A PageRank run")
+    static final class Rank extends Event {
+        @Label("Solver")
+        String solver;
+
+        @Label("Nodes")
+        int nodes;
+
+        @Label("Edges")
+        long edges;
+
+        @Label("Iterations")
+        int iterations;
+
+        @Label("Residual")
+        double residual;
+
+        @Label("Converged")
+        boolean converged;
+
+        @Label("Edges Processed")
+        long edgesProcessed;
+    }
+
+    @Name("pagerank.Traversal")
+    @Label("Traverse Graph")
+    @Category("PageRank")
+    @Description("A breadth-first or depth-first search")
+    static final class Traversal extends Event {
+        @Label("Algorithm")
+        String algorithm;
+
+        @Label("Source")
+        int source;
+
+        @Label("Vertices Visited")
+        long verticesVisited;
+
+        @Label("Edges Relaxed")
+        long edgesRelaxed;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded generators of synthetic graphs, so benchmarks can run on graphs of any size that look
+ * like the web. The same arguments always give the same edges, in the same order.
+ *
+ * R-MAT places every edge by picking one quadrant of the adjacency matrix per bit of the node
+ * ids, which gives skewed degrees and communities within communities. Barabasi-Albert links
+ * every new node to nodes picked in proportion to their degree, which gives a power-law
+ * in-degree. Erdos-Renyi picks every edge uniformly and is the baseline without skew.
+ */
+public final class GraphGenerator {
+    // the quadrant probabilities of the Graph500 benchmark
+    public static final double RMAT_A = 0.57;
+    public static final double RMAT_B = 0.19;
+    public static final double RMAT_C = 0.19;
+
+    /**
+     * Generates an R-MAT graph with the Graph500 quadrant probabilities.
+     * @param scale, the base 2 logarithm of the number of nodes
+     * @param edges, the number of edges to generate
+     * @param seed, the seed of the random numbers
+     * @return the edges, between nodes 0 to 2^scale - 1
+     * @throws IllegalArgumentException if scale is not between 0 and 30 or edges is negative
+     */
+    public static EdgeBuffer rmat(int scale, int edges, long seed) {
+        return rmat(scale, edges, RMAT_A, RMAT_B, RMAT_C, seed);
+    }
+
+    /**
+     * Generates an R-MAT graph. Every edge picks, for each bit of its ends from the highest
+     * down, the top-left quadrant with probability a, top-right with b, bottom-left with c and
+     * bottom-right with the rest. The node ids are shuffled afterwards so that the degree of a
+     * node does not follow from its id. Duplicate edges and self loops are kept; building a
+     * graph drops the duplicates.
+     * @param scale, the base 2 logarithm of the number of nodes
+     * @param edges, the number of edges to generate
+     * @param a, the probability of the top-left quadrant
+     * @param b, the probability of the top-right quadrant
+     * @param c, the probability of the bottom-left quadrant
+     * @param seed, the seed of the random numbers
+     * @return the edges, between nodes 0 to 2^scale - 1
+     * @throws IllegalArgumentException if scale is not between 0 and 30, edges is negative or
+     *         the probabilities are negative or add up to more than 1
+     */
+    public static EdgeBuffer rmat(int scale, int edges, double a, double b, double c,
+            long seed) {
+        if (scale < 0 || scale > 30) {
+            throw new IllegalArgumentException("Scale must be between 0 and 30");
+        }
+        if (edges < 0) {
+            throw new IllegalArgumentException("Number of edges cannot be negative");
+        }
+        if (a < 0.0 || b < 0.0 || c < 0.0 || a + b + c > 1.0) {
+            throw new IllegalArgumentException("Quadrant probabilities must be a distribution");
+        }
+        int n = 1 << scale;
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] shuffle = shuffle(n, random);
+        EdgeBuffer buffer = new EdgeBuffer(edges);
+        for (int e = 0; e < edges; e++) {
+            int u = 0;
+            int v = 0;
+            for (int bit = scale - 1; bit >= 0; bit--) {
+                double p = random.nextDouble();
+                if (p >= a + b + c) {
+                    u |= 1 << bit;
+                    v |= 1 << bit;
+                } else if (p >= a + b) {
+                    u |= 1 << bit;
+                } else if (p >= a) {
+                    v |= 1 << bit;
+                }
+            }
+            buffer.add(shuffle[u], shuffle[v]);
+        }
+        return buffer;
+    }
+
+    /**
+     * Generates a Barabasi-Albert graph. The first edgesPerNode + 1 nodes link to every node
+     * before them. Every later node links to edgesPerNode different earlier nodes, each picked
+     * with a probability proportional to its degree so far.
+     * @param n, the number of nodes
+     * @param edgesPerNode, the number of edges from every node after the first ones
+     * @param seed, the seed of the random numbers
+     * @return the edges, from the newer node to the older one, without duplicates
+     * @throws IllegalArgumentException if a count is negative or the graph has more than
+     *         Integer.MAX_VALUE edges
+     */
+    public static EdgeBuffer barabasiAlbert(int n, int edgesPerNode, long seed) {
+        if (n < 0 || edgesPerNode < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+        if ((long) n * edgesPerNode > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Too many edges");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        EdgeBuffer buffer = new EdgeBuffer(n * edgesPerNode);
+
+        // both ends of every edge so far, so a uniform pick is proportional to degree
+        int[] ends = new int[2 * n * edgesPerNode];
+        int endCount = 0;
+        int[] picked = new int[edgesPerNode];
+        for (int u = 1; u < n; u++) {
+            int count = 0;
+            if (u <= edgesPerNode) {
+                for (int v = 0; v < u; v++) {
+                    picked[count++] = v;
+                }
+            } else {
+                while (count < edgesPerNode) {
+                    int v = ends[random.nextInt(endCount)];
+                    boolean repeated = false;
+                    for (int i = 0; i < count && !repeated; i++) {
+                        repeated = picked[i] == v;
+                    }
+                    if (!repeated) {
+                        picked[count++] = v;
+                    }
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                buffer.add(u, picked[i]);
+                ends[endCount++] = u;
+                ends[endCount++] = picked[i];
+            }
+        }
+        return buffer;
+    }
+
+    /**
+     * Generates an Erdos-Renyi graph: edges picked uniformly from all the pairs of different
+     * nodes. Duplicate edges are kept; building a graph drops them.
+     * @param n, the number of nodes
+     * @param edges, the number of edges to generate
+     * @param seed, the seed of the random numbers
+     * @return the edges
+     * @throws IllegalArgumentException if a count is negative, or there are edges but fewer
+     *         than 2 nodes
+     */
+    public static EdgeBuffer erdosRenyi(int n, int edges, long seed) {
+        if (n < 0 || edges < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+        if (edges > 0 && n < 2) {
+            throw new IllegalArgumentException("Edges need at least 2 nodes");
+        }
+        SplittableRandom random = new SplittableRandom(seed);
+        EdgeBuffer buffer = new EdgeBuffer(edges);
+        for (int e = 0; e < edges; e++) {
+            int u = random.nextInt(n);
+
+            // pick v from the other n - 1 nodes
+            int v = random.nextInt(n - 1);
+            buffer.add(u, v >= u ? v + 1 : v);
+        }
+        return buffer;
+    }
+
+    /**
+     * Writes edges as an edge list file that {@link Reader#readFile(String)} can read, naming
+     * node v "site" + v + ".com".
+     * @param edges, the edges
+     * @param fileName, the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeEdgeList(EdgeBuffer edges, String fileName) throws IOException {
+        Writer out = new BufferedWriter(new FileWriter(fileName), 1 << 16);
+        try {
+            for (int e = 0; e < edges.size(); e++) {
+                out.write("site");
+                out.write(Integer.toString(edges.getSource(e)));
+                out.write(".com site");
+                out.write(Integer.toString(edges.getDestination(e)));
+                out.write(".com\n");
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Method for making a random permutation of 0 to n - 1.
+     */
+    private static int[] shuffle(int n, SplittableRandom random) {
+        int[] permutation = new int[n];
+        for (int i = 0; i < n; i++) {
+            permutation[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = permutation[i];
+            permutation[i] = permutation[j];
+            permutation[j] = tmp;
+        }
+        return permutation;
+    }
+}
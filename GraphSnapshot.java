@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * Versioned binary file format for a graph together with the names of its nodes. All numbers
+ * are little-endian and every section starts at a multiple of 8 bytes:
+ * <pre>
+ *   header      64 bytes: magic "PRGS", version, node count n, 0, edge count m,
+ *               name byte count, CRC32 of everything after the header, zero padding
+ *   offsets     n + 1 ints, the CSR row offsets
+ *   targets     m ints, the sorted CSR neighbor rows
+ *   name starts n + 1 ints, where the name of node v spans the name bytes
+ *               nameStarts[v] to nameStarts[v + 1] - 1
+ *   names       the UTF-8 bytes of all node names
+ *   name table  t ints, an open-addressing table of v + 1 for every node v, placed by the
+ *               NodeDictionary hash of its name with linear probing, 0 marking an empty slot;
+ *               t is the highest power of two at most n, times 4
+ * </pre>
+ * Opening a snapshot maps each section with {@link FileChannel#map}, so a graph is usable as
+ * soon as the header has been checked. Each section must fit in 2 GB.
+ */
+public final class GraphSnapshot {
+    public static final int MAGIC = 0x53475250;
+    public static final int VERSION = 2;
+
+    private static final int HEADER_SIZE = 64;
+
+    // largest part of the file checksummed at once
+    private static final int WINDOW = 1 << 30;
+
+    /**
+     * Converts an edge list text file into a snapshot file.
+     * @param edgeListFile, the edge list to read
+     * @param snapshotFile, the snapshot to write
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void convert(String edgeListFile, String snapshotFile) throws IOException {
+        LoadedGraph loaded = new EdgeListLoader().load(edgeListFile);
+        write(loaded.getGraph(), loaded.getDictionary(), snapshotFile);
+    }
+
+    /**
+     * Writes a graph and the names of its nodes to a snapshot file.
+     * @param g, the graph
+     * @param names, the names of the nodes of g, indexed by node
+     * @param fileName, the snapshot to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if the graph or dictionary is null, or if the dictionary
+     *         does not have one name per node
+     */
+    public static void write(Graph g, NodeDictionary names, String fileName) throws IOException {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (names == null || names.size() != g.getSize()) {
+            throw new IllegalArgumentException("Need one name per node");
+        }
+        CsrGraph csr = CsrGraph.of(g);
+        RandomAccessFile file = new RandomAccessFile(fileName, "rw");
+        try {
+            file.setLength(0);
+            FileChannel channel = file.getChannel();
+            channel.position(HEADER_SIZE);
+            SectionWriter out = new SectionWriter(channel);
+            out.writeInts(csr.offsets(), csr.getSize() + 1);
+            out.writeInts(csr.targets(), csr.getEdgeCount());
+            int[] nameStarts = new int[csr.getSize() + 1];
+            for (int v = 0; v <= csr.getSize(); v++) {
+                nameStarts[v] = names.start(v);
+            }
+            out.writeInts(nameStarts, nameStarts.length);
+            ByteBuffer nameBytes = names.bytes();
+            out.writeBytes(nameBytes);
+            int[] nameTable = nameTable(nameBytes, nameStarts);
+            out.writeInts(nameTable, nameTable.length);
+            out.flush();
+
+            // the header goes last, once the checksum is known
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).putInt(csr.getSize()).putInt(0);
+            header.putLong(csr.getEdgeCount()).putLong(nameBytes.limit()).putLong(out.checksum());
+            header.clear();
+            channel.write(header, 0);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Opens a snapshot file and validates its checksum.
+     * @param fileName, the snapshot to open
+     * @return the graph, read from the mapped file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MappedGraph open(String fileName) throws IOException {
+        return open(fileName, true);
+    }
+
+    /**
+     * Opens a snapshot file. Skipping the checksum makes opening independent of the file size,
+     * since nothing but the header is read up front.
+     * @param fileName, the snapshot to open
+     * @param verify, whether to validate the checksum of the whole file
+     * @return the graph, read from the mapped file
+     * @throws IOException if the file cannot be read or is not a valid snapshot
+     */
+    public static MappedGraph open(String fileName, boolean verify) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(fileName, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(fileName + " is not a graph snapshot");
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.getInt() != MAGIC) {
+                throw new IOException(fileName + " is not a graph snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version);
+            }
+            int n = header.getInt();
+            header.getInt();
+            long m = header.getLong();
+            long nameBytes = header.getLong();
+            long checksum = header.getLong();
+
+            // work out where each section starts and check that the file holds all of them
+            long offsetsAt = HEADER_SIZE;
+            long targetsAt = align(offsetsAt + 4L * (n + 1));
+            long nameStartsAt = align(targetsAt + 4L * m);
+            long namesAt = align(nameStartsAt + 4L * (n + 1));
+            long tableAt = align(namesAt + nameBytes);
+            long end = align(tableAt + 4L * tableSize(n));
+            if (n < 0 || m < 0 || nameBytes < 0 || channel.size() != end) {
+                throw new IOException(fileName + " is truncated or has a corrupt header");
+            }
+            if (verify && checksum(channel, HEADER_SIZE, end) != checksum) {
+                throw new IOException(fileName + " failed checksum validation");
+            }
+
+            IntBuffer offsets = map(channel, offsetsAt, 4L * (n + 1)).asIntBuffer();
+            IntBuffer targets = map(channel, targetsAt, 4L * m).asIntBuffer();
+            IntBuffer nameStarts = map(channel, nameStartsAt, 4L * (n + 1)).asIntBuffer();
+            ByteBuffer names = map(channel, namesAt, nameBytes);
+            IntBuffer nameTable = map(channel, tableAt, 4L * tableSize(n)).asIntBuffer();
+            if (offsets.get(0) != 0 || offsets.get(n) != m) {
+                throw new IOException(fileName + " has corrupt offsets");
+            }
+            return new MappedGraph(offsets, targets, nameStarts, names, nameTable);
+        } finally {
+            // mappings stay valid after the channel is closed
+            file.close();
+        }
+    }
+
+    /**
+     * Converts edge list files into snapshots, writing each next to its input with the
+     * extension ".graph".
+     * @param args, the edge list files
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        for (String edgeListFile : args) {
+            String snapshotFile = edgeListFile.replaceAll("\\.txt$", "") + ".graph";
+            long start = System.nanoTime();
+            convert(edgeListFile, snapshotFile);
+            System.out.println(edgeListFile + " -> " + snapshotFile + " in "
+                    + (System.nanoTime() - start) / 1000000 + " ms");
+        }
+    }
+
+    /**
+     * Returns the number of slots of the name table of n nodes, which keeps it at most half
+     * full.
+     * @param n, the number of nodes
+     * @return the number of slots
+     */
+    static long tableSize(int n) {
+        return 4L * Integer.highestOneBit(Math.max(n, 1));
+    }
+
+    /**
+     * Method for building the name table of the nodes, with the same hash and probing as
+     * {@link NodeDictionary}, so a mapped graph can find a node by name.
+     * @param names, the UTF-8 bytes of all node names
+     * @param nameStarts, the n + 1 offsets of the node names in names
+     * @return the table
+     * @throws IOException if the table is larger than a section may be
+     */
+    private static int[] nameTable(ByteBuffer names, int[] nameStarts) throws IOException {
+        long size = tableSize(nameStarts.length - 1);
+        if (4L * size > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section larger than 2 GB");
+        }
+        int[] table = new int[(int) size];
+        int mask = table.length - 1;
+        for (int v = 0; v + 1 < nameStarts.length; v++) {
+            int slot = NodeDictionary.hash(names, nameStarts[v], nameStarts[v + 1]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = v + 1;
+        }
+        return table;
+    }
+
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+
+    private static ByteBuffer map(FileChannel channel, long position, long length)
+            throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("Snapshot section larger than 2 GB");
+        }
+        MappedByteBuffer section = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        return section.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static long checksum(FileChannel channel, long from, long to) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long position = from; position < to; position += WINDOW) {
+            long length = Math.min(WINDOW, to - position);
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length));
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Writes little-endian sections through a direct buffer, padding each to 8 bytes and
+     * keeping a running checksum of everything written.
+     */
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buf =
+                ByteBuffer.allocateDirect(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        private final CRC32 crc = new CRC32();
+        private long written;
+
+        SectionWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInts(int[] values, int count) throws IOException {
+            for (int i = 0; i < count; i++) {
+                if (this.buf.remaining() < 4) {
+                    drain();
+                }
+                this.buf.putInt(values[i]);
+                this.written += 4;
+            }
+            pad();
+        }
+
+        void writeBytes(ByteBuffer bytes) throws IOException {
+            ByteBuffer src = bytes.duplicate();
+            while (src.hasRemaining()) {
+                if (!this.buf.hasRemaining()) {
+                    drain();
+                }
+                int chunk = Math.min(src.remaining(), this.buf.remaining());
+                ByteBuffer slice = src.duplicate();
+                slice.limit(slice.position() + chunk);
+                this.buf.put(slice);
+                src.position(src.position() + chunk);
+                this.written += chunk;
+            }
+            pad();
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        long checksum() {
+            return this.crc.getValue();
+        }
+
+        private void pad() throws IOException {
+            while ((this.written & 7) != 0) {
+                if (!this.buf.hasRemaining()) {
+                    drain();
+                }
+                this.buf.put((byte) 0);
+                this.written++;
+            }
+        }
+
+        private void drain() throws IOException {
+            this.buf.flip();
+            ByteBuffer view = this.buf.duplicate();
+            this.crc.update(view);
+            while (this.buf.hasRemaining()) {
+                this.channel.write(this.buf);
+            }
+            this.buf.clear();
+        }
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Keeps the PageRank of a changing graph up to date. Every node holds an estimate and a
+ * residual such that residual = teleport + damping * (rank flowing in along the edges of the
+ * estimate) - estimate. Adding or removing an edge u-v only changes what u sends along its
+ * edges, so the residuals of u's neighbors are repaired directly and then pushed on until every
+ * residual is below tolerance / n. Like the averaged change {@link PageRank} stops on, the
+ * threshold shrinks with the graph, so it stays below the teleport rank of a node. The cost of
+ * an update thus depends on the out-degree of u and on how far the change spreads, not on the
+ * size of the graph.
+ */
+public class IncrementalPageRank {
+    public static final double DEFAULT_DAMPING = 0.85;
+
+    private final Graph graph;
+    private final double damping;
+    // largest residual a node may keep: the tolerance divided by the number of nodes
+    private final double threshold;
+    private final PageRank.DanglingPolicy dangling;
+    private final double[] ranks;
+    private final double[] residuals;
+
+    // ring buffer of the nodes whose residual is at least the threshold
+    private final int[] queue;
+    private final boolean[] queued;
+    private int head;
+    private int count;
+
+    private long pushes;
+    private long edgesProcessed;
+
+    /**
+     * Creates an incremental ranking of a graph with the default damping and tolerance of
+     * {@link PageRank}, and computes the initial ranks.
+     * @param g, the graph to rank; it must only be changed through this object from now on
+     * @throws IllegalArgumentException if the specified graph is null or immutable
+     */
+    public IncrementalPageRank(Graph g) {
+        this(g, DEFAULT_DAMPING, PageRank.DEFAULT_TOLERANCE, PageRank.DanglingPolicy.SELF_LOOP);
+    }
+
+    /**
+     * Creates an incremental ranking of a graph and computes the initial ranks.
+     * @param g, the graph to rank; it must only be changed through this object from now on
+     * @param damping, the probability of following a link, below 1
+     * @param tolerance, the largest average residual per node that may be kept
+     * @param dangling, how to treat nodes without outgoing edges
+     * @throws IllegalArgumentException if the specified graph is null or immutable, or if a
+     *         setting is out of range
+     */
+    public IncrementalPageRank(Graph g, double damping, double tolerance,
+            PageRank.DanglingPolicy dangling) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (!g.isModifiable()) {
+            throw new IllegalArgumentException("Graph must be modifiable");
+        }
+        if (!(damping >= 0.0 && damping < 1.0)) {
+            throw new IllegalArgumentException("Damping must be at least 0 and below 1");
+        }
+        if (!(tolerance > 0.0)) {
+            throw new IllegalArgumentException("Tolerance must be positive");
+        }
+        if (dangling == null) {
+            throw new IllegalArgumentException("Dangling policy can't be null");
+        }
+        this.graph = g;
+        this.damping = damping;
+        this.dangling = dangling;
+        int n = g.getSize();
+        this.threshold = tolerance / Math.max(n, 1);
+        this.ranks = new double[n];
+        this.residuals = new double[n];
+        this.queue = new int[n];
+        this.queued = new boolean[n];
+
+        // an all-zero estimate leaves the teleport rank as the residual of every node
+        for (int i = 0; i < n; i++) {
+            this.residuals[i] = teleport();
+            enqueue(i);
+        }
+        push();
+    }
+
+    /**
+     * Adds an edge to the graph and repairs the ranks.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at
+     * @return true if the graph changed as a result of this call, false otherwise
+     * @throws IllegalArgumentException if a specified node does not exist
+     */
+    public boolean addEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+        int oldDegree = this.graph.outDegree(u);
+        if (!this.graph.addEdge(u, v)) {
+            return false;
+        }
+        repair(u, oldDegree, v, true);
+        push();
+        return true;
+    }
+
+    /**
+     * Removes an edge from the graph and repairs the ranks.
+     * @param u the node the edge starts at
+     * @param v the node the edge ends at
+     * @return true if the graph changed as a result of this call, false otherwise
+     * @throws IllegalArgumentException if a specified node does not exist
+     */
+    public boolean removeEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+        int oldDegree = this.graph.outDegree(u);
+        if (!this.graph.removeEdge(u, v)) {
+            return false;
+        }
+        repair(u, oldDegree, v, false);
+        push();
+        return true;
+    }
+
+    /**
+     * Replaces the current estimate with previously computed ranks and repairs them for the
+     * current graph. Good starting ranks leave little residual, so few pushes are needed.
+     * @param previous, the rank of every node, indexed by node
+     * @throws IllegalArgumentException if the array is null or does not match the graph size
+     */
+    public void warmStart(double[] previous) {
+        if (previous == null || previous.length != this.ranks.length) {
+            throw new IllegalArgumentException("Ranks do not match the graph size");
+        }
+        int n = this.ranks.length;
+        System.arraycopy(previous, 0, this.ranks, 0, n);
+
+        // recompute every residual from the new estimate
+        for (int i = 0; i < n; i++) {
+            this.residuals[i] = teleport() - this.ranks[i];
+        }
+        for (int u = 0; u < n; u++) {
+            int degree = this.graph.outDegree(u);
+            if (degree == 0) {
+                if (this.dangling == PageRank.DanglingPolicy.SELF_LOOP) {
+                    this.residuals[u] += this.damping * this.ranks[u];
+                }
+                continue;
+            }
+            double share = this.damping * this.ranks[u] / degree;
+            for (int k = 0; k < degree; k++) {
+                this.residuals[this.graph.neighborAt(u, k)] += share;
+            }
+            this.edgesProcessed += degree;
+        }
+        for (int i = 0; i < n; i++) {
+            enqueue(i);
+        }
+        push();
+    }
+
+    /**
+     * Warm-starts from a rank file in the format written by Reader, with one
+     * "domain : rank" line per node. Nodes missing from the file start at rank 0.
+     * @param fileName, the rank file
+     * @param names, the names of the nodes of the graph
+     * @throws IOException if the file cannot be read
+     * @throws IllegalArgumentException if a line is malformed
+     */
+    public void warmStart(String fileName, NodeDictionary names) throws IOException {
+        double[] previous = new double[this.ranks.length];
+        BufferedReader br = new BufferedReader(new FileReader(fileName));
+        try {
+            String line = br.readLine();
+            while (line != null) {
+                if (!line.isEmpty()) {
+                    int split = line.lastIndexOf(" : ");
+                    if (split < 0) {
+                        throw new IllegalArgumentException("Malformed rank line: " + line);
+                    }
+                    int node = names.getId(line.substring(0, split));
+                    if (node >= 0 && node < previous.length) {
+                        previous[node] = Double.parseDouble(line.substring(split + 3));
+                    }
+                }
+                line = br.readLine();
+            }
+        } finally {
+            br.close();
+        }
+        warmStart(previous);
+    }
+
+    /**
+     * Returns the current ranks. Every residual is below tolerance / n, so summed over all
+     * nodes the ranks are within tolerance / (1 - damping) of the exact ranks.
+     * @return a new array with the rank of every node, indexed by node
+     */
+    public double[] getRanks() {
+        double[] copy = this.ranks.clone();
+        if (this.dangling != PageRank.DanglingPolicy.UNIFORM) {
+            return copy;
+        }
+
+        // spreading dangling rank evenly only rescales the ranks computed with it dropped
+        double total = 0.0;
+        for (int i = 0; i < copy.length; i++) {
+            total += copy[i];
+        }
+        if (total > 0.0) {
+            for (int i = 0; i < copy.length; i++) {
+                copy[i] /= total;
+            }
+        }
+        return copy;
+    }
+
+    public long getPushes() {
+        return this.pushes;
+    }
+
+    public long getEdgesProcessed() {
+        return this.edgesProcessed;
+    }
+
+    /**
+     * Method for fixing the residuals after the out-degree of u changed. The estimate of u is
+     * now split over a different set of edges, so each neighbor's residual moves by the
+     * difference between what it gets now and what it got before.
+     * @param u, the node whose edges changed
+     * @param oldDegree, the out-degree of u before the change
+     * @param v, the other end of the added or removed edge
+     * @param added, true if u-v was added and false if it was removed
+     */
+    private void repair(int u, int oldDegree, int v, boolean added) {
+        double mass = this.damping * this.ranks[u];
+        int newDegree = this.graph.outDegree(u);
+        double oldShare = oldDegree == 0 ? 0.0 : mass / oldDegree;
+        double newShare = newDegree == 0 ? 0.0 : mass / newDegree;
+
+        // the neighbors u kept get the new share instead of the old one
+        for (int k = 0; k < newDegree; k++) {
+            int w = this.graph.neighborAt(u, k);
+            this.residuals[w] += w == v ? newShare : newShare - oldShare;
+            enqueue(w);
+        }
+        if (!added) {
+            this.residuals[v] -= oldShare;
+            enqueue(v);
+        }
+        this.edgesProcessed += newDegree;
+
+        // a dangling node sends its rank to itself instead
+        if (this.dangling == PageRank.DanglingPolicy.SELF_LOOP) {
+            if (oldDegree == 0) {
+                this.residuals[u] -= mass;
+            }
+            if (newDegree == 0) {
+                this.residuals[u] += mass;
+            }
+            enqueue(u);
+        }
+    }
+
+    /**
+     * Method for pushing residuals until every node's residual is below the threshold.
+     */
+    private void push() {
+        int n = this.ranks.length;
+        while (this.count > 0) {
+            int v = this.queue[this.head];
+            this.head = (this.head + 1) % n;
+            this.count--;
+            this.queued[v] = false;
+            double r = this.residuals[v];
+            this.residuals[v] = 0.0;
+            this.pushes++;
+
+            int degree = this.graph.outDegree(v);
+            if (degree == 0) {
+                // a self-loop feeds the residual back forever, a geometric series
+                boolean selfLoop = this.dangling == PageRank.DanglingPolicy.SELF_LOOP;
+                this.ranks[v] += selfLoop ? r / (1.0 - this.damping) : r;
+                continue;
+            }
+            this.ranks[v] += r;
+            double share = this.damping * r / degree;
+            for (int k = 0; k < degree; k++) {
+                int w = this.graph.neighborAt(v, k);
+                this.residuals[w] += share;
+                enqueue(w);
+            }
+            this.edgesProcessed += degree;
+        }
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.ranks.length) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+    }
+
+    /**
+     * Method for queueing a node if its residual is too large and it is not queued yet.
+     * @param v, the node
+     */
+    private void enqueue(int v) {
+        if (!this.queued[v] && Math.abs(this.residuals[v]) >= this.threshold) {
+            this.queued[v] = true;
+            this.queue[(this.head + this.count) % this.queue.length] = v;
+            this.count++;
+        }
+    }
+
+    /**
+     * Method for returning the rank every node receives by teleporting.
+     * @return the teleport rank of a node
+     */
+    private double teleport() {
+        return (1.0 - this.damping) / this.ranks.length;
+    }
+}
@@ -0,0 +1,105 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide counters of the BFS and DFS routines: how many searches ran, how many vertices
+ * they visited and how many edges they relaxed. A search counts in local variables and adds
+ * its totals once at the end, so the counters cost nothing inside the loops, and nothing at
+ * all while they are disabled. They are disabled unless the system property
+ * pagerank.instrumentation is true or {@link #setEnabled(boolean)} turns them on.
+ */
+public final class Instrumentation {
+    private static volatile boolean enabled = Boolean.getBoolean("pagerank.instrumentation");
+
+    private static final LongAdder BFS_RUNS = new LongAdder();
+    private static final LongAdder BFS_VERTICES = new LongAdder();
+    private static final LongAdder BFS_EDGES = new LongAdder();
+    private static final LongAdder DFS_RUNS = new LongAdder();
+    private static final LongAdder DFS_VERTICES = new LongAdder();
+    private static final LongAdder DFS_EDGES = new LongAdder();
+
+    private Instrumentation() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the counters on or off. Searches that are running keep the setting they started
+     * with.
+     * @param on, whether searches should be counted
+     */
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    /**
+     * Sets every counter back to 0.
+     */
+    public static void reset() {
+        BFS_RUNS.reset();
+        BFS_VERTICES.reset();
+        BFS_EDGES.reset();
+        DFS_RUNS.reset();
+        DFS_VERTICES.reset();
+        DFS_EDGES.reset();
+    }
+
+    /**
+     * Returns the current value of every counter.
+     * @return the counters by name, in a fixed order
+     */
+    public static Map<String, Long> snapshot() {
+        Map<String, Long> counters = new LinkedHashMap<String, Long>();
+        counters.put("bfs_runs_total", BFS_RUNS.sum());
+        counters.put("bfs_vertices_visited_total", BFS_VERTICES.sum());
+        counters.put("bfs_edges_relaxed_total", BFS_EDGES.sum());
+        counters.put("dfs_runs_total", DFS_RUNS.sum());
+        counters.put("dfs_vertices_visited_total", DFS_VERTICES.sum());
+        counters.put("dfs_edges_relaxed_total", DFS_EDGES.sum());
+        return counters;
+    }
+
+    /**
+     * Returns the counters as text with one "name value" line each, which monitoring tools can
+     * scrape.
+     * @return the summary
+     */
+    public static String summary() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Long> counter : snapshot().entrySet()) {
+            sb.append("pagerank_").append(counter.getKey()).append(' ')
+                    .append(counter.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Method for ending a search: adds its totals to the counters if they are enabled, and
+     * commits its event if a recording wants it.
+     * @param event, the event begun when the search started
+     * @param algorithm, the class and method of the search, like "BFS.bfsImpl"
+     * @param source, the node the search started at
+     * @param vertices, the number of vertices visited
+     * @param edges, the number of edges relaxed
+     */
+    static void traversal(GraphEvents.Traversal event, String algorithm, int source,
+            long vertices, long edges) {
+        if (enabled) {
+            boolean bfs = algorithm.startsWith("BFS");
+            (bfs ? BFS_RUNS : DFS_RUNS).increment();
+            (bfs ? BFS_VERTICES : DFS_VERTICES).add(vertices);
+            (bfs ? BFS_EDGES : DFS_EDGES).add(edges);
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.algorithm = algorithm;
+            event.source = source;
+            event.verticesVisited = vertices;
+            event.edgesRelaxed = edges;
+            event.commit();
+        }
+    }
+}
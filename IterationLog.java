@@ -0,0 +1,126 @@
+import java.util.Arrays;
+
+/**
+ * A {@link PageRankListener} that keeps the residual, time and edge count of every iteration of
+ * a run, and sums them up in a summary with one "name value" line per figure, which monitoring
+ * tools can scrape. A log is meant for a single run; use {@link #clear()} to reuse it.
+ */
+public class IterationLog implements PageRankListener {
+    private double[] residuals = new double[16];
+    private long[] nanos = new long[16];
+    private long[] edges = new long[16];
+    private int count;
+
+    @Override
+    public void iteration(int iteration, double residual, long elapsedNanos,
+            long edgesProcessed) {
+        if (this.count == this.residuals.length) {
+            this.residuals = Arrays.copyOf(this.residuals, 2 * this.count);
+            this.nanos = Arrays.copyOf(this.nanos, 2 * this.count);
+            this.edges = Arrays.copyOf(this.edges, 2 * this.count);
+        }
+        this.residuals[this.count] = residual;
+        this.nanos[this.count] = elapsedNanos;
+        this.edges[this.count] = edgesProcessed;
+        this.count++;
+    }
+
+    /**
+     * Forgets every iteration.
+     */
+    public void clear() {
+        this.count = 0;
+    }
+
+    public int getIterations() {
+        return this.count;
+    }
+
+    /**
+     * Returns the residual of an iteration.
+     * @param i the iteration, starting at 0
+     * @return the residual after iteration i
+     * @throws IllegalArgumentException if there was no such iteration
+     */
+    public double getResidual(int i) {
+        check(i);
+        return this.residuals[i];
+    }
+
+    /**
+     * Returns the time an iteration took.
+     * @param i the iteration, starting at 0
+     * @return the time in nanoseconds
+     * @throws IllegalArgumentException if there was no such iteration
+     */
+    public long getNanos(int i) {
+        check(i);
+        return this.nanos[i];
+    }
+
+    /**
+     * Returns the number of edges an iteration went through.
+     * @param i the iteration, starting at 0
+     * @return the edges processed in iteration i
+     * @throws IllegalArgumentException if there was no such iteration
+     */
+    public long getEdges(int i) {
+        check(i);
+        return this.edges[i];
+    }
+
+    public long getTotalNanos() {
+        long total = 0;
+        for (int i = 0; i < this.count; i++) {
+            total += this.nanos[i];
+        }
+        return total;
+    }
+
+    public long getTotalEdges() {
+        long total = 0;
+        for (int i = 0; i < this.count; i++) {
+            total += this.edges[i];
+        }
+        return total;
+    }
+
+    /**
+     * Returns the figures of the run, one "name value" line each: the number of iterations,
+     * the total, mean and slowest iteration time, the final residual, the edges processed and
+     * the edges per second.
+     * @return the summary
+     */
+    public String summary() {
+        long total = getTotalNanos();
+        long slowest = 0;
+        for (int i = 0; i < this.count; i++) {
+            slowest = Math.max(slowest, this.nanos[i]);
+        }
+        long edgesTotal = getTotalEdges();
+        StringBuilder sb = new StringBuilder();
+        sb.append("pagerank_iterations ").append(this.count).append('\n');
+        sb.append("pagerank_nanos_total ").append(total).append('\n');
+        sb.append("pagerank_nanos_mean ").append(this.count == 0 ? 0 : total / this.count)
+                .append('\n');
+        sb.append("pagerank_nanos_max ").append(slowest).append('\n');
+        sb.append("pagerank_residual ")
+                .append(this.count == 0 ? Double.NaN : this.residuals[this.count - 1])
+                .append('\n');
+        sb.append("pagerank_edges_total ").append(edgesTotal).append('\n');
+        sb.append("pagerank_edges_per_second ")
+                .append(total == 0 ? 0 : (long) (edgesTotal * 1e9 / total)).append('\n');
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return summary();
+    }
+
+    private void check(int i) {
+        if (i < 0 || i >= this.count) {
+            throw new IllegalArgumentException("No iteration " + i);
+        }
+    }
+}
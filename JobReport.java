@@ -0,0 +1,107 @@
+/**
+ * The outcome of ranking one edge list in a {@link BatchRanker} run: the sizes of the graph,
+ * the time spent in every stage and, if the job failed, why.
+ */
+public class JobReport {
+    private final String input;
+    private final String output;
+    private final int nodes;
+    private final long edges;
+    private final int iterations;
+    private final long reservedBytes;
+    private final long waitNanos;
+    private final long loadNanos;
+    private final long rankNanos;
+    private final long writeNanos;
+    private final Throwable failure;
+
+    /**
+     * Creates a report.
+     * @param input, the edge list file
+     * @param output, the ranks file
+     * @param nodes, the number of nodes, or 0 if the graph was not loaded
+     * @param edges, the number of edges, or 0 if the graph was not loaded
+     * @param iterations, the number of PageRank iterations, or 0 if the graph was not ranked
+     * @param reservedBytes, the heap the job was admitted with
+     * @param waitNanos, the time between admission and the start of loading
+     * @param loadNanos, the time spent loading
+     * @param rankNanos, the time spent ranking
+     * @param writeNanos, the time spent writing the ranks
+     * @param failure, what made the job fail, or null if it succeeded
+     */
+    public JobReport(String input, String output, int nodes, long edges, int iterations,
+            long reservedBytes, long waitNanos, long loadNanos, long rankNanos, long writeNanos,
+            Throwable failure) {
+        this.input = input;
+        this.output = output;
+        this.nodes = nodes;
+        this.edges = edges;
+        this.iterations = iterations;
+        this.reservedBytes = reservedBytes;
+        this.waitNanos = waitNanos;
+        this.loadNanos = loadNanos;
+        this.rankNanos = rankNanos;
+        this.writeNanos = writeNanos;
+        this.failure = failure;
+    }
+
+    public String getInput() {
+        return this.input;
+    }
+
+    public String getOutput() {
+        return this.output;
+    }
+
+    public int getNodes() {
+        return this.nodes;
+    }
+
+    public long getEdges() {
+        return this.edges;
+    }
+
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    public long getReservedBytes() {
+        return this.reservedBytes;
+    }
+
+    public long getWaitNanos() {
+        return this.waitNanos;
+    }
+
+    public long getLoadNanos() {
+        return this.loadNanos;
+    }
+
+    public long getRankNanos() {
+        return this.rankNanos;
+    }
+
+    public long getWriteNanos() {
+        return this.writeNanos;
+    }
+
+    public Throwable getFailure() {
+        return this.failure;
+    }
+
+    public boolean isSucceeded() {
+        return this.failure == null;
+    }
+
+    @Override
+    public String toString() {
+        String times = "wait " + this.waitNanos / 1000000 + " ms, load " + this.loadNanos / 1000000
+                + " ms, rank " + this.rankNanos / 1000000 + " ms, write "
+                + this.writeNanos / 1000000 + " ms";
+        if (this.failure != null) {
+            return this.input + " FAILED: " + this.failure + " (" + times + ")";
+        }
+        return this.input + " -> " + this.output + ": " + this.nodes + " nodes, " + this.edges
+                + " edges, " + this.iterations + " iterations (" + times + ")";
+    }
+}
@@ -0,0 +1,25 @@
+/**
+ * A graph loaded from a file together with the dictionary of its node names.
+ */
+public class LoadedGraph {
+    private final CsrGraph graph;
+    private final NodeDictionary dictionary;
+
+    /**
+     * Creates a loaded graph.
+     * @param graph, the graph
+     * @param dictionary, the names of the nodes of graph, indexed by node
+     */
+    public LoadedGraph(CsrGraph graph, NodeDictionary dictionary) {
+        this.graph = graph;
+        this.dictionary = dictionary;
+    }
+
+    public CsrGraph getGraph() {
+        return this.graph;
+    }
+
+    public NodeDictionary getDictionary() {
+        return this.dictionary;
+    }
+}
@@ -0,0 +1,272 @@
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Read-only graph backed by the memory-mapped sections of a {@link GraphSnapshot} file. The CSR
+ * arrays, the node names and the table that finds a node by name are read straight from the
+ * mapping, so opening a graph does not copy anything onto the heap.
+ */
+public class MappedGraph extends Graph {
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final Names dictionary;
+    private final int size;
+
+    /**
+     * Creates a graph over mapped sections.
+     * @param offsets the n + 1 row offsets
+     * @param targets the sorted neighbor rows
+     * @param nameStarts the n + 1 offsets of the node names in names
+     * @param names the UTF-8 bytes of all node names
+     * @param nameTable the hash table of node + 1 by name, as written by GraphSnapshot
+     */
+    MappedGraph(IntBuffer offsets, IntBuffer targets, IntBuffer nameStarts, ByteBuffer names,
+            IntBuffer nameTable) {
+        super(0);
+        this.offsets = offsets;
+        this.targets = targets;
+        this.dictionary = new Names(nameStarts, names, nameTable);
+        this.size = offsets.limit() - 1;
+    }
+
+    @Override
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * Method for returning the number of edges in the graph.
+     * @return the number of edges in the graph
+     */
+    public int getEdgeCount() {
+        return this.targets.limit();
+    }
+
+    @Override
+    public boolean hasEdge(int u, int v) {
+        checkNode(u);
+        checkNode(v);
+
+        // binary search in the sorted row of u
+        int lo = this.offsets.get(u);
+        int hi = this.offsets.get(u + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int w = this.targets.get(mid);
+            if (w < v) {
+                lo = mid + 1;
+            } else if (w > v) {
+                hi = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean addEdge(int u, int v) {
+        throw new UnsupportedOperationException("Mapped graphs cannot be modified");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public int addEdges(int[] sources, int[] destinations, int count) {
+        throw new UnsupportedOperationException("Mapped graphs cannot be modified");
+    }
+
+    /**
+     * Mapped graphs are read-only.
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public boolean removeEdge(int u, int v) {
+        throw new UnsupportedOperationException("Mapped graphs cannot be modified");
+    }
+
+    @Override
+    public Set<Integer> getNeighbors(int v) {
+        checkNode(v);
+        Set<Integer> neighbors = new TreeSet<Integer>();
+        for (int i = this.offsets.get(v); i < this.offsets.get(v + 1); i++) {
+            neighbors.add(this.targets.get(i));
+        }
+        return Collections.unmodifiableSet(neighbors);
+    }
+
+    /**
+     * Returns the name of a node, decoded from the mapped string table.
+     * @param v the node
+     * @return the name of the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    public String getName(int v) {
+        checkNode(v);
+        return this.dictionary.getName(v);
+    }
+
+    /**
+     * Returns the node with the specified name, found through the mapped name table.
+     * @param name the name
+     * @return the node, or -1 if no node has that name
+     */
+    public int getId(String name) {
+        return this.dictionary.getId(name);
+    }
+
+    /**
+     * Returns the names of the nodes as a read-only dictionary over the mapping, which can be
+     * passed wherever a dictionary is needed, like {@link RankWriter}.
+     * @return the dictionary of the node names
+     */
+    public NodeDictionary getDictionary() {
+        return this.dictionary;
+    }
+
+    /**
+     * Copies the graph onto the heap in one bulk read of each section.
+     * @return the CSR form of the graph
+     */
+    @Override
+    CsrGraph toCsrGraph() {
+        int[] offsetArray = new int[this.offsets.limit()];
+        this.offsets.duplicate().get(offsetArray);
+        int[] targetArray = new int[this.targets.limit()];
+        this.targets.duplicate().get(targetArray);
+        return new CsrGraph(offsetArray, targetArray);
+    }
+
+    @Override
+    int outDegree(int v) {
+        return this.offsets.get(v + 1) - this.offsets.get(v);
+    }
+
+    @Override
+    int neighborAt(int v, int k) {
+        return this.targets.get(this.offsets.get(v) + k);
+    }
+
+    @Override
+    boolean isModifiable() {
+        return false;
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.size) {
+            throw new IllegalArgumentException("" + v + " not present in the graph");
+        }
+    }
+
+    /**
+     * Read-only dictionary over the mapped name sections. Lookups only use absolute reads of
+     * the mapping, so any number of threads can use it at once.
+     */
+    private static final class Names extends NodeDictionary {
+        private final IntBuffer starts;
+        private final ByteBuffer bytes;
+        private final IntBuffer table;
+
+        Names(IntBuffer starts, ByteBuffer bytes, IntBuffer table) {
+            this.starts = starts;
+            this.bytes = bytes;
+            this.table = table;
+        }
+
+        /**
+         * Mapped dictionaries are read-only.
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        public int add(String name) {
+            throw new UnsupportedOperationException("Mapped dictionaries cannot be modified");
+        }
+
+        @Override
+        public int getId(String name) {
+            if (name == null) {
+                return -1;
+            }
+            ByteBuffer key = ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8));
+            int mask = this.table.limit() - 1;
+            int slot = NodeDictionary.hash(key, 0, key.limit()) & mask;
+            for (; ; slot = (slot + 1) & mask) {
+                int id = this.table.get(slot) - 1;
+                if (id < 0) {
+                    return -1;
+                }
+                if (matches(id, key)) {
+                    return id;
+                }
+            }
+        }
+
+        @Override
+        public String getName(int id) {
+            if (id < 0 || id >= size()) {
+                throw new IllegalArgumentException("" + id + " not present in the dictionary");
+            }
+            int start = this.starts.get(id);
+            byte[] name = new byte[this.starts.get(id + 1) - start];
+            for (int i = 0; i < name.length; i++) {
+                name[i] = this.bytes.get(start + i);
+            }
+            return new String(name, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int size() {
+            return this.starts.limit() - 1;
+        }
+
+        /**
+         * Mapped dictionaries are read-only.
+         * @throws UnsupportedOperationException always
+         */
+        @Override
+        int intern(ByteBuffer buf, int from, int to) {
+            throw new UnsupportedOperationException("Mapped dictionaries cannot be modified");
+        }
+
+        @Override
+        ByteBuffer bytes() {
+            return this.bytes.asReadOnlyBuffer();
+        }
+
+        @Override
+        int start(int id) {
+            return this.starts.get(id);
+        }
+
+        /**
+         * Method for checking whether the name with the specified id equals the given bytes.
+         */
+        private boolean matches(int id, ByteBuffer key) {
+            int start = this.starts.get(id);
+            if (this.starts.get(id + 1) - start != key.limit()) {
+                return false;
+            }
+            for (int i = 0; i < key.limit(); i++) {
+                if (this.bytes.get(start + i) != key.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/**
+ * Reusable cursor over the neighbors of a node, in increasing order. Moving it to another node
+ * allocates nothing, so traversals can walk every edge of a graph through a single cursor.
+ * Graphs that cannot return a neighbor by position, like {@link CompressedGraph}, return a
+ * subclass that decodes the row of a node when the cursor moves there.
+ */
+public class NeighborCursor {
+    private final Graph graph;
+    private int node;
+    private int position;
+    private int degree;
+
+    /**
+     * Creates a cursor over a graph, positioned on no node.
+     * @param graph the graph
+     */
+    NeighborCursor(Graph graph) {
+        this.graph = graph;
+    }
+
+    /**
+     * Moves the cursor to the first neighbor of a node.
+     * @param v the node
+     * @return this cursor
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    public NeighborCursor reset(int v) {
+        this.degree = this.graph.degree(v);
+        this.node = v;
+        this.position = 0;
+        return this;
+    }
+
+    public boolean hasNext() {
+        return this.position < this.degree;
+    }
+
+    /**
+     * Returns the next neighbor.
+     * @return the next neighbor of the current node
+     * @throws IllegalStateException if every neighbor has been returned
+     */
+    public int next() {
+        if (this.position >= this.degree) {
+            throw new IllegalStateException("No neighbors left");
+        }
+        return this.graph.neighborAt(this.node, this.position++);
+    }
+}
@@ -0,0 +1,203 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Maps node names to consecutive ids and back. The names are appended as UTF-8 to one byte pool
+ * and an int array holds where each id's name starts, so a name costs its bytes plus one int.
+ * Names are found through an open-addressing table of ids hashed on the bytes, so interning a
+ * name that is already known copies nothing and creates no objects. Once no more names are
+ * added, lookups can run from many threads without locking.
+ */
+public class NodeDictionary {
+    private byte[] pool = new byte[1 << 12];
+    private int poolSize;
+    private int[] starts = new int[257];
+    private int size;
+
+    // id + 1 of the name stored in each slot, 0 for an empty slot
+    private int[] slots = new int[512];
+
+    /**
+     * Returns the id of a name, assigning the next free id if it is new.
+     * @param name the name
+     * @return the id of the name
+     * @throws IllegalArgumentException if the name is null
+     */
+    public int add(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Name can't be null");
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8));
+        return intern(bytes, 0, bytes.limit());
+    }
+
+    /**
+     * Returns the id of a name.
+     * @param name the name
+     * @return the id of the name, or -1 if it is not in the dictionary
+     */
+    public int getId(String name) {
+        if (name == null) {
+            return -1;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(name.getBytes(StandardCharsets.UTF_8));
+        return find(bytes, 0, bytes.limit(), hash(bytes, 0, bytes.limit()));
+    }
+
+    /**
+     * Returns the name with the specified id.
+     * @param id the id
+     * @return the name
+     * @throws IllegalArgumentException if no name has the specified id
+     */
+    public String getName(int id) {
+        if (id < 0 || id >= this.size) {
+            throw new IllegalArgumentException("" + id + " not present in the dictionary");
+        }
+        int start = this.starts[id];
+        return new String(this.pool, start, this.starts[id + 1] - start, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Method for returning the number of names in the dictionary.
+     * @return the number of names
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Builds a read-only copy of the dictionary that front-codes the names.
+     * @return the front-coded dictionary
+     */
+    public FrontCodedDictionary frontCoded() {
+        return new FrontCodedDictionary(this);
+    }
+
+    /**
+     * Returns the id of a name given as UTF-8 bytes, assigning the next free id if it is new.
+     * @param buf the buffer holding the name
+     * @param from the index of the first byte of the name
+     * @param to the index after the last byte of the name
+     * @return the id of the name
+     */
+    int intern(ByteBuffer buf, int from, int to) {
+        int hash = hash(buf, from, to);
+        int id = find(buf, from, to, hash);
+        if (id >= 0) {
+            return id;
+        }
+        id = append(buf, from, to);
+        int mask = this.slots.length - 1;
+        int slot = hash & mask;
+        while (this.slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        this.slots[slot] = id + 1;
+        if (this.size * 2 > this.slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    /**
+     * Returns the pool of name bytes wrapped in a buffer, where name id spans the bytes
+     * start(id) to start(id + 1) - 1.
+     * @return a read-only view of the pool
+     */
+    ByteBuffer bytes() {
+        return ByteBuffer.wrap(this.pool, 0, this.poolSize).asReadOnlyBuffer();
+    }
+
+    int start(int id) {
+        return this.starts[id];
+    }
+
+    /**
+     * Method for finding the id of a name given as bytes.
+     * @return the id, or -1 if the name is not in the dictionary
+     */
+    private int find(ByteBuffer buf, int from, int to, int hash) {
+        int mask = this.slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = this.slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (matches(id, buf, from, to)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * Method for storing a new name at the end of the pool.
+     * @return the id given to the name
+     */
+    private int append(ByteBuffer buf, int from, int to) {
+        int length = to - from;
+        if (this.poolSize + length > this.pool.length) {
+            this.pool = Arrays.copyOf(this.pool,
+                    Math.max(this.pool.length + (this.pool.length >> 1), this.poolSize + length));
+        }
+        for (int i = 0; i < length; i++) {
+            this.pool[this.poolSize + i] = buf.get(from + i);
+        }
+        this.poolSize += length;
+        if (this.size + 2 > this.starts.length) {
+            this.starts = Arrays.copyOf(this.starts, this.starts.length * 2);
+        }
+        this.size++;
+        this.starts[this.size] = this.poolSize;
+        return this.size - 1;
+    }
+
+    /**
+     * Method for checking whether the name with the specified id equals the given bytes.
+     */
+    private boolean matches(int id, ByteBuffer buf, int from, int to) {
+        int start = this.starts[id];
+        if (this.starts[id + 1] - start != to - from) {
+            return false;
+        }
+        for (int i = from; i < to; i++) {
+            if (this.pool[start++] != buf.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Method for doubling the table once it is half full.
+     */
+    private void rehash() {
+        int[] bigger = new int[this.slots.length * 2];
+        int mask = bigger.length - 1;
+        ByteBuffer all = ByteBuffer.wrap(this.pool);
+        for (int id = 0; id < this.size; id++) {
+            int slot = hash(all, this.starts[id], this.starts[id + 1]) & mask;
+            while (bigger[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            bigger[slot] = id + 1;
+        }
+        this.slots = bigger;
+    }
+
+    /**
+     * Method for hashing a range of bytes with FNV-1a, with the bits mixed at the end so the
+     * low bits used for the slot depend on the whole name.
+     */
+    static int hash(ByteBuffer buf, int from, int to) {
+        int h = 0x811c9dc5;
+        for (int i = from; i < to; i++) {
+            h = (h ^ (buf.get(i) & 0xff)) * 0x01000193;
+        }
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -0,0 +1,241 @@
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * PageRank over a {@link ShardedGraph}, for graphs whose edges do not fit in the heap. Every
+ * iteration streams the shards from disk in order. Only two rank vectors, the out-degrees and
+ * the ranks of one interval stay in memory. While one shard is processed, a background thread
+ * maps the next one and touches all of its pages. The disk then reads ahead sequentially while
+ * the CPU works, and the scan of the current shard never waits for a page.
+ *
+ * The iteration is the power iteration of {@link PageRank#rank(Graph)} with the same settings,
+ * so the ranks match the in-memory ones up to the rounding of sums taken in another order.
+ */
+public class OutOfCorePageRank {
+    private final PageRank settings;
+
+    /**
+     * Creates a ranker with the default settings of {@link Graph#pageRank()}.
+     */
+    public OutOfCorePageRank() {
+        this(new PageRank());
+    }
+
+    /**
+     * Creates a ranker.
+     * @param settings, the damping, tolerance, iteration limit and dangling policy to use
+     * @throws IllegalArgumentException if settings is null
+     */
+    public OutOfCorePageRank(PageRank settings) {
+        if (settings == null) {
+            throw new IllegalArgumentException("Settings can't be null");
+        }
+        this.settings = settings;
+    }
+
+    /**
+     * Computes the ranks of every node of a sharded graph.
+     * @param g, the graph
+     * @return the ranks and statistics of the run
+     * @throws IOException if a shard cannot be read
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public PageRankResult rank(ShardedGraph g) throws IOException {
+        return rank(g, null);
+    }
+
+    /**
+     * Computes the ranks of every node of a sharded graph, reporting every iteration to a
+     * listener.
+     * @param g, the graph
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     * @throws IOException if a shard cannot be read
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public PageRankResult rank(ShardedGraph g, PageRankListener listener) throws IOException {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        GraphEvents.Rank event = new GraphEvents.Rank();
+        event.begin();
+        int n = g.getSize();
+        int[] starts = g.starts();
+        int[] degrees = g.outDegrees();
+        int shards = g.getShardCount();
+        double damping = this.settings.getDamping();
+        PageRank.DanglingPolicy dangling = this.settings.getDanglingPolicy();
+
+        double[] ranks = new double[n];
+        double[] next = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+        }
+        int widest = 0;
+        for (int p = 0; p < shards; p++) {
+            widest = Math.max(widest, starts[p + 1] - starts[p]);
+        }
+        double[] incoming = new double[widest];
+
+        ExecutorService prefetcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "shard-prefetch");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        int iterations = 0;
+        double diff = 0.0;
+        double teleport = (1.0 - damping) / n;
+        long mark = listener == null ? 0L : System.nanoTime();
+        try {
+            Future<IntBuffer> ahead = shards == 0 ? null : prefetch(prefetcher, g, 0);
+            do {
+                double danglingSum = 0.0;
+                for (int i = 0; i < n; i++) {
+                    if (degrees[i] == 0) {
+                        danglingSum += ranks[i];
+                    }
+                }
+                double spread = dangling == PageRank.DanglingPolicy.UNIFORM
+                        ? danglingSum / n : 0.0;
+                diff = 0.0;
+                for (int p = 0; p < shards; p++) {
+                    IntBuffer edges = await(ahead);
+
+                    // read the next shard, or the first one again for the next iteration
+                    ahead = prefetch(prefetcher, g, p + 1 < shards ? p + 1 : 0);
+
+                    // push the rank of every source along its edges into the interval
+                    int lo = starts[p];
+                    int hi = starts[p + 1];
+                    Arrays.fill(incoming, 0, hi - lo, 0.0);
+                    int source = -1;
+                    double share = 0.0;
+                    while (edges.hasRemaining()) {
+                        int u = edges.get();
+                        int v = edges.get();
+                        if (u != source) {
+                            source = u;
+                            share = ranks[u] / degrees[u];
+                        }
+                        incoming[v - lo] += share;
+                    }
+
+                    // apply damping and the dangling policy, and measure the change
+                    for (int i = lo; i < hi; i++) {
+                        double sum = incoming[i - lo] + spread;
+                        if (dangling == PageRank.DanglingPolicy.SELF_LOOP && degrees[i] == 0) {
+                            sum = ranks[i] + incoming[i - lo];
+                        }
+                        next[i] = teleport + damping * sum;
+                        diff += Math.abs(next[i] - ranks[i]) / n;
+                    }
+                }
+
+                // swap the buffers
+                double[] tmp = ranks;
+                ranks = next;
+                next = tmp;
+                iterations++;
+                if (listener != null) {
+                    long now = System.nanoTime();
+                    listener.iteration(iterations, diff, now - mark, g.getEdgeCount());
+                    mark = now;
+                }
+            } while (diff >= this.settings.getTolerance()
+                    && iterations < this.settings.getMaxIterations());
+        } finally {
+            prefetcher.shutdownNow();
+        }
+
+        PageRankResult result = new PageRankResult(ranks, iterations, diff,
+                diff < this.settings.getTolerance(), iterations * g.getEdgeCount());
+        GraphEvents.ranked(event, "OUT_OF_CORE", n, g.getEdgeCount(), result);
+        return result;
+    }
+
+    /**
+     * Partitions an edge list, ranks it and writes the ranks of every node to a file.
+     * @param args, the edge list, the directory for the shards, the memory budget in
+     *        megabytes and the ranks file to write
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.out.println("Usage: OutOfCorePageRank <edge list> <shard directory> "
+                    + "<memory budget in MB> <ranks file>");
+            return;
+        }
+        long start = System.nanoTime();
+        ShardedGraph g = ShardedGraph.partition(args[0], args[1], Long.parseLong(args[2]) << 20);
+        long partitioned = System.nanoTime();
+        try {
+            PageRankResult result = new OutOfCorePageRank().rank(g);
+            long ranked = System.nanoTime();
+            RankWriter.writeFile(args[3], result.getRanks(), g.getDictionary(), -1);
+            System.out.println(args[0] + ": " + g.getSize() + " nodes, " + g.getEdgeCount()
+                    + " edges in " + g.getShardCount() + " shards, partitioned in "
+                    + (partitioned - start) / 1000000 + " ms, " + result.getIterations()
+                    + " iterations in " + (ranked - partitioned) / 1000000 + " ms");
+        } finally {
+            g.delete();
+        }
+    }
+
+    /**
+     * Method for mapping a shard on the prefetch thread and loading all of its pages.
+     */
+    private static Future<IntBuffer> prefetch(ExecutorService prefetcher, final ShardedGraph g,
+            final int p) {
+        return prefetcher.submit(new Callable<IntBuffer>() {
+            @Override
+            public IntBuffer call() throws IOException {
+                RandomAccessFile file = new RandomAccessFile(g.shardFile(p), "r");
+                try {
+                    FileChannel channel = file.getChannel();
+                    if (channel.size() > Integer.MAX_VALUE) {
+                        throw new IOException(g.shardFile(p) + " is larger than 2 GB");
+                    }
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                            channel.size());
+                    mapped.load();
+                    return mapped.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                } finally {
+                    // mappings stay valid after the channel is closed
+                    file.close();
+                }
+            }
+        });
+    }
+
+    /**
+     * Method for waiting for a prefetched shard.
+     */
+    private static IntBuffer await(Future<IntBuffer> shard) throws IOException {
+        try {
+            return shard.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading a shard", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Cannot read a shard", e.getCause());
+        }
+    }
+}
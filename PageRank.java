@@ -0,0 +1,734 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * PageRank engine working on primitive rank buffers. The two buffers are swapped between
+ * iterations so nothing is allocated inside the loop. With the default settings it computes
+ * the same ranks as the original {@link Graph#pageRank()} loop: no damping, dangling nodes keep
+ * their own rank, and iteration stops once the average change drops below 0.00001.
+ */
+public class PageRank {
+    /**
+     * What happens to the rank of a node without outgoing edges.
+     */
+    public enum DanglingPolicy {
+        /** the node keeps its rank, as if it had a self-loop */
+        SELF_LOOP,
+        /** the rank is spread evenly over all nodes */
+        UNIFORM,
+        /** the rank is dropped */
+        DROP
+    }
+
+    /**
+     * How the ranks are iterated towards convergence.
+     */
+    public enum Solver {
+        /** plain power iteration, every node recomputed from the previous iteration */
+        POWER,
+        /** in-place updates that use the ranks already computed in the current sweep */
+        GAUSS_SEIDEL,
+        /** power iteration that only sends the rank of nodes whose rank still moves */
+        ADAPTIVE,
+        /** pushes residual rank only from nodes whose residual exceeds the tolerance / n */
+        DELTA_PUSH
+    }
+
+    public static final double DEFAULT_DAMPING = 1.0;
+    public static final double DEFAULT_TOLERANCE = 0.00001;
+    public static final int DEFAULT_MAX_ITERATIONS = 10000;
+
+    // number of work chunks handed to each thread of a parallel run
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private final double damping;
+    private final double tolerance;
+    private final int maxIterations;
+    private final DanglingPolicy dangling;
+
+    /**
+     * Creates an engine with the default settings of {@link Graph#pageRank()}.
+     */
+    public PageRank() {
+        this(DEFAULT_DAMPING, DEFAULT_TOLERANCE, DEFAULT_MAX_ITERATIONS, DanglingPolicy.SELF_LOOP);
+    }
+
+    /**
+     * Creates an engine with the specified settings.
+     * @param damping the probability of following a link, between 0 and 1
+     * @param tolerance iteration stops once the average change of a rank is below this value
+     * @param maxIterations the maximum number of iterations to run
+     * @param dangling how to treat nodes without outgoing edges
+     * @throws IllegalArgumentException if a setting is out of range
+     */
+    public PageRank(double damping, double tolerance, int maxIterations,
+            DanglingPolicy dangling) {
+        if (!(damping >= 0.0 && damping <= 1.0)) {
+            throw new IllegalArgumentException("Damping must be between 0 and 1");
+        }
+        if (!(tolerance >= 0.0)) {
+            throw new IllegalArgumentException("Tolerance cannot be negative");
+        }
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("Need at least one iteration");
+        }
+        if (dangling == null) {
+            throw new IllegalArgumentException("Dangling policy can't be null");
+        }
+        this.damping = damping;
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+        this.dangling = dangling;
+    }
+
+    public double getDamping() {
+        return this.damping;
+    }
+
+    public double getTolerance() {
+        return this.tolerance;
+    }
+
+    public int getMaxIterations() {
+        return this.maxIterations;
+    }
+
+    public DanglingPolicy getDanglingPolicy() {
+        return this.dangling;
+    }
+
+    /**
+     * Computes the ranks of every node of a graph with power iteration.
+     * @param g, the input graph
+     * @return the ranks and statistics of the run
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public PageRankResult rank(Graph g) {
+        return rank(g, Solver.POWER);
+    }
+
+    /**
+     * Computes the ranks of every node of a graph with the specified solver. Gauss-Seidel and
+     * delta-push need a damping below 1, since otherwise the ranks have no unique fixed point
+     * and the residual of delta-push never shrinks.
+     * @param g, the input graph
+     * @param solver, the iteration strategy
+     * @return the ranks and statistics of the run
+     * @throws IllegalArgumentException if the specified graph or solver is null, or if the
+     *         solver needs a damping below 1
+     */
+    public PageRankResult rank(Graph g, Solver solver) {
+        return rank(g, solver, null);
+    }
+
+    /**
+     * Computes the ranks of every node of a graph with the specified solver, reporting every
+     * iteration to a listener.
+     * @param g, the input graph
+     * @param solver, the iteration strategy
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     * @throws IllegalArgumentException if the specified graph or solver is null, or if the
+     *         solver needs a damping below 1
+     */
+    public PageRankResult rank(Graph g, Solver solver, PageRankListener listener) {
+        if (solver == null) {
+            throw new IllegalArgumentException("Solver can't be null");
+        }
+        if ((solver == Solver.GAUSS_SEIDEL || solver == Solver.DELTA_PUSH) && this.damping >= 1.0) {
+            throw new IllegalArgumentException(solver + " needs a damping below 1");
+        }
+
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        GraphEvents.Rank event = new GraphEvents.Rank();
+        event.begin();
+        if (solver == Solver.POWER) {
+            // stream the rows, so a compressed graph is decoded one row at a time
+            RowScan rows = g.scan();
+            PageRankResult result = power(rows, g.getSize(), listener);
+            GraphEvents.ranked(event, solver.name(), g.getSize(), rows.edgeCount(), result);
+            return result;
+        }
+        CsrGraph csr = CsrGraph.of(g);
+        boolean selfLoop = this.dangling == DanglingPolicy.SELF_LOOP;
+        PageRankResult result;
+        switch (solver) {
+            case GAUSS_SEIDEL:
+                PageRankResult sweeps = gaussSeidel(csr, selfLoop, listener);
+                result = this.dangling == DanglingPolicy.UNIFORM ? normalize(sweeps) : sweeps;
+                break;
+            case ADAPTIVE:
+                result = adaptive(csr, listener);
+                break;
+            case DELTA_PUSH:
+                PageRankResult pushes = deltaPush(csr, selfLoop, listener);
+                result = this.dangling == DanglingPolicy.UNIFORM ? normalize(pushes) : pushes;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown solver " + solver);
+        }
+        GraphEvents.ranked(event, solver.name(), csr.getSize(), csr.getEdgeCount(), result);
+        return result;
+    }
+
+    /**
+     * Method for turning ranks computed with dropped dangling rank into the ranks where it is
+     * spread evenly. Spreading it evenly is the same as teleporting, so both rank vectors are
+     * proportional and only differ by their sum.
+     * @param dropped, the result of a run that dropped the dangling rank
+     * @return the result with ranks scaled to sum to 1
+     */
+    private static PageRankResult normalize(PageRankResult dropped) {
+        double[] ranks = dropped.getRanks();
+        double total = 0.0;
+        for (int i = 0; i < ranks.length; i++) {
+            total += ranks[i];
+        }
+        if (total > 0.0) {
+            for (int i = 0; i < ranks.length; i++) {
+                ranks[i] /= total;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Method for running plain power iteration. Every iteration pushes the rank of each node
+     * along the rows of one pass of the scan, so rows that are decoded on the fly, like those
+     * of a compressed graph, reuse the buffers of the scan.
+     * @param rows, the rows of the input graph
+     * @param n, the number of nodes
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     */
+    private PageRankResult power(RowScan rows, int n, PageRankListener listener) {
+        long edges = rows.edgeCount();
+        boolean[] dangling = new boolean[n];
+
+        double[] ranks = new double[n];
+        double[] next = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+        }
+
+        int iterations = 0;
+        double diff = 0.0;
+        double teleport = (1.0 - this.damping) / n;
+        long mark = listener == null ? 0L : System.nanoTime();
+        do {
+            // push the rank of each node to its neighbors
+            Arrays.fill(next, 0.0);
+            double danglingSum = 0.0;
+            rows.reset();
+            for (int i = 0; i < n; i++) {
+                int degree = rows.next();
+                if (degree == 0) {
+                    dangling[i] = true;
+                    danglingSum += ranks[i];
+                    continue;
+                }
+                int[] row = rows.row();
+                int start = rows.start();
+                int end = start + degree;
+                double share = ranks[i] / degree;
+                for (int k = start; k < end; k++) {
+                    next[row[k]] += share;
+                }
+            }
+
+            // apply damping and the dangling policy, and measure the change
+            double spread = this.dangling == DanglingPolicy.UNIFORM ? danglingSum / n : 0.0;
+            diff = 0.0;
+            for (int i = 0; i < n; i++) {
+                double incoming = next[i] + spread;
+                if (this.dangling == DanglingPolicy.SELF_LOOP && dangling[i]) {
+                    incoming = ranks[i] + next[i];
+                }
+                next[i] = teleport + this.damping * incoming;
+                diff += Math.abs(next[i] - ranks[i]) / n;
+            }
+
+            // swap the buffers
+            double[] tmp = ranks;
+            ranks = next;
+            next = tmp;
+            iterations++;
+            if (listener != null) {
+                long now = System.nanoTime();
+                listener.iteration(iterations, diff, now - mark, edges);
+                mark = now;
+            }
+        } while (diff >= this.tolerance && iterations < this.maxIterations);
+
+        return new PageRankResult(ranks, iterations, diff, diff < this.tolerance,
+                iterations * edges);
+    }
+
+    /**
+     * Method for running Gauss-Seidel iteration. Each node pulls the shares of its predecessors
+     * as they are right now, so ranks updated earlier in a sweep are used immediately. Dangling
+     * rank is either kept by its node or dropped.
+     * @param csr, the input graph
+     * @param selfLoop, whether dangling nodes keep their rank
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     */
+    private PageRankResult gaussSeidel(CsrGraph csr, boolean selfLoop,
+            PageRankListener listener) {
+        CsrGraph reverse = csr.transpose();
+        int n = csr.getSize();
+        int[] offsets = csr.offsets();
+        int[] reverseOffsets = reverse.offsets();
+        int[] sources = reverse.targets();
+
+        double[] ranks = new double[n];
+        double[] shares = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+            int degree = offsets[i + 1] - offsets[i];
+            shares[i] = degree == 0 ? 0.0 : ranks[i] / degree;
+        }
+
+        int iterations = 0;
+        double diff = 0.0;
+        double teleport = (1.0 - this.damping) / n;
+        long mark = listener == null ? 0L : System.nanoTime();
+        do {
+            diff = 0.0;
+            for (int i = 0; i < n; i++) {
+                double sum = 0.0;
+                for (int k = reverseOffsets[i]; k < reverseOffsets[i + 1]; k++) {
+                    sum += shares[sources[k]];
+                }
+                int degree = offsets[i + 1] - offsets[i];
+                double updated;
+                if (selfLoop && degree == 0) {
+                    // the self-loop feeds the rank back, so solve x = t + d * (sum + x) for x
+                    updated = (teleport + this.damping * sum) / (1.0 - this.damping);
+                } else {
+                    updated = teleport + this.damping * sum;
+                }
+                if (degree != 0) {
+                    shares[i] = updated / degree;
+                }
+                diff += Math.abs(updated - ranks[i]) / n;
+                ranks[i] = updated;
+            }
+            iterations++;
+            if (listener != null) {
+                long now = System.nanoTime();
+                listener.iteration(iterations, diff, now - mark, csr.getEdgeCount());
+                mark = now;
+            }
+        } while (diff >= this.tolerance && iterations < this.maxIterations);
+
+        return new PageRankResult(ranks, iterations, diff, diff < this.tolerance,
+                (long) iterations * csr.getEdgeCount());
+    }
+
+    /**
+     * Method for running adaptive power iteration. Every node keeps the sum of the shares it
+     * receives, and a node only pushes its change along its edges once that change is large
+     * against its own rank, so the edges of settled nodes are skipped. Rank that is held back
+     * this way is spread evenly, which keeps the ranks summing to the same total as POWER.
+     * @param csr, the input graph
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     */
+    private PageRankResult adaptive(CsrGraph csr, PageRankListener listener) {
+        int n = csr.getSize();
+        int[] offsets = csr.offsets();
+        int[] targets = csr.targets();
+        boolean selfLoop = this.dangling == DanglingPolicy.SELF_LOOP;
+        boolean uniform = this.dangling == DanglingPolicy.UNIFORM;
+
+        // sums[i] holds the shares of the ranks last sent to node i
+        double[] ranks = new double[n];
+        double[] sent = new double[n];
+        double[] sums = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+            sent[i] = ranks[i];
+        }
+        for (int i = 0; i < n; i++) {
+            int degree = offsets[i + 1] - offsets[i];
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                sums[targets[k]] += sent[i] / degree;
+            }
+        }
+        long edgesProcessed = csr.getEdgeCount();
+
+        int iterations = 0;
+        double diff = 0.0;
+        double teleport = (1.0 - this.damping) / n;
+        // a node sends its change once it is tolerance * n of its rank, about the tolerance
+        // for a node of average rank
+        double push = this.tolerance * n;
+        long mark = listener == null ? 0L : System.nanoTime();
+        long reported = 0;
+        while (true) {
+            // spread the dangling rank and the rank not sent yet evenly
+            double spreadSum = 0.0;
+            for (int i = 0; i < n; i++) {
+                if (offsets[i] != offsets[i + 1]) {
+                    spreadSum += ranks[i] - sent[i];
+                } else if (uniform) {
+                    spreadSum += ranks[i];
+                }
+            }
+            double spread = spreadSum / n;
+
+            // recompute every node from the sums, which costs no edges
+            diff = 0.0;
+            for (int i = 0; i < n; i++) {
+                double incoming = sums[i] + spread;
+                if (selfLoop && offsets[i] == offsets[i + 1]) {
+                    incoming += ranks[i];
+                }
+                double updated = teleport + this.damping * incoming;
+                diff += Math.abs(updated - ranks[i]) / n;
+                ranks[i] = updated;
+            }
+            iterations++;
+            boolean done = diff < this.tolerance || iterations >= this.maxIterations;
+
+            // send the change of the nodes that moved far enough against their rank
+            if (!done) {
+                for (int i = 0; i < n; i++) {
+                    int degree = offsets[i + 1] - offsets[i];
+                    double change = ranks[i] - sent[i];
+                    if (degree == 0 || Math.abs(change) < push * ranks[i]) {
+                        continue;
+                    }
+                    double share = change / degree;
+                    for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                        sums[targets[k]] += share;
+                    }
+                    sent[i] = ranks[i];
+                    edgesProcessed += degree;
+                }
+            }
+            if (listener != null) {
+                long now = System.nanoTime();
+                listener.iteration(iterations, diff, now - mark, edgesProcessed - reported);
+                mark = now;
+                reported = edgesProcessed;
+            }
+            if (done) {
+                break;
+            }
+        }
+
+        return new PageRankResult(ranks, iterations, diff, diff < this.tolerance, edgesProcessed);
+    }
+
+    /**
+     * Method for running the residual push solver. Every node holds an estimate and a residual,
+     * and only nodes whose residual is at least tolerance / n push it on to their neighbors.
+     * Like the averaged change the other solvers stop on, the threshold shrinks with the graph,
+     * so it stays below the rank of a typical node. An iteration is one round over the nodes
+     * queued at its start. Dangling rank is either kept by its node or dropped.
+     * @param csr, the input graph
+     * @param selfLoop, whether dangling nodes keep their rank
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     */
+    private PageRankResult deltaPush(CsrGraph csr, boolean selfLoop,
+            PageRankListener listener) {
+        int n = csr.getSize();
+        int[] offsets = csr.offsets();
+        int[] targets = csr.targets();
+        double teleport = (1.0 - this.damping) / n;
+        double threshold = this.tolerance / Math.max(n, 1);
+
+        // start from the uniform estimate, whose residual is one power step away
+        double[] ranks = new double[n];
+        double[] residuals = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+            residuals[i] = teleport - ranks[i];
+        }
+        for (int i = 0; i < n; i++) {
+            int degree = offsets[i + 1] - offsets[i];
+            if (degree == 0) {
+                if (selfLoop) {
+                    residuals[i] += this.damping * ranks[i];
+                }
+                continue;
+            }
+            double share = this.damping * ranks[i] / degree;
+            for (int k = offsets[i]; k < offsets[i + 1]; k++) {
+                residuals[targets[k]] += share;
+            }
+        }
+        long edgesProcessed = csr.getEdgeCount();
+
+        // queue every node whose residual is too large, in a ring buffer
+        int[] queue = new int[n];
+        boolean[] queued = new boolean[n];
+        int head = 0;
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (Math.abs(residuals[i]) >= threshold) {
+                queued[i] = true;
+                queue[count++] = i;
+            }
+        }
+
+        int iterations = 0;
+        long mark = listener == null ? 0L : System.nanoTime();
+        long reported = 0;
+        while (count > 0 && iterations < this.maxIterations) {
+            // push the residual of every node queued at the start of the round
+            int round = count;
+            double moved = 0.0;
+            while (round-- > 0) {
+                int v = queue[head];
+                head = (head + 1) % n;
+                count--;
+                queued[v] = false;
+                double r = residuals[v];
+                residuals[v] = 0.0;
+                int degree = offsets[v + 1] - offsets[v];
+                if (degree == 0) {
+                    // a self-loop feeds the residual back forever, a geometric series
+                    double added = selfLoop ? r / (1.0 - this.damping) : r;
+                    ranks[v] += added;
+                    moved += Math.abs(added);
+                    continue;
+                }
+                ranks[v] += r;
+                moved += Math.abs(r);
+                double share = this.damping * r / degree;
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int w = targets[k];
+                    residuals[w] += share;
+                    if (!queued[w] && Math.abs(residuals[w]) >= threshold) {
+                        queued[w] = true;
+                        queue[(head + count++) % n] = w;
+                    }
+                }
+                edgesProcessed += degree;
+            }
+            iterations++;
+            if (listener != null) {
+                long now = System.nanoTime();
+                listener.iteration(iterations, moved / n, now - mark, edgesProcessed - reported);
+                mark = now;
+                reported = edgesProcessed;
+            }
+        }
+
+        double diff = 0.0;
+        for (int i = 0; i < n; i++) {
+            diff += Math.abs(residuals[i]) / n;
+        }
+        return new PageRankResult(ranks, iterations, diff, count == 0, edgesProcessed);
+    }
+
+    /**
+     * Computes the ranks of every node of a graph on several threads. Each node pulls the rank
+     * of its predecessors through the reverse graph, so no two threads write the same entry.
+     * Nodes are split into chunks of roughly equal edge count so high in-degree nodes do not
+     * leave one thread working alone. The ranks match {@link #rank(Graph)} within the tolerance.
+     * @param g, the input graph
+     * @param pool, the pool to run the iterations on
+     * @return the ranks and statistics of the run
+     * @throws IllegalArgumentException if the specified graph or pool is null
+     */
+    public PageRankResult rankParallel(Graph g, ForkJoinPool pool) {
+        return rankParallel(g, pool, null);
+    }
+
+    /**
+     * Computes the ranks of every node of a graph on several threads, reporting every
+     * iteration to a listener. The listener is called on the thread that waits for the pool.
+     * @param g, the input graph
+     * @param pool, the pool to run the iterations on
+     * @param listener, the listener to call after every iteration, or null for none
+     * @return the ranks and statistics of the run
+     * @throws IllegalArgumentException if the specified graph or pool is null
+     */
+    public PageRankResult rankParallel(Graph g, ForkJoinPool pool, PageRankListener listener) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null");
+        }
+        GraphEvents.Rank event = new GraphEvents.Rank();
+        event.begin();
+        CsrGraph csr = CsrGraph.of(g);
+        CsrGraph reverse = csr.transpose();
+        int n = csr.getSize();
+        int[] bounds = balancedChunks(reverse.offsets(), pool.getParallelism() * CHUNKS_PER_THREAD);
+
+        double[] ranks = new double[n];
+        double[] next = new double[n];
+        double[] shares = new double[n];
+        for (int i = 0; i < n; i++) {
+            ranks[i] = 1.0 / n;
+        }
+
+        int iterations = 0;
+        double diff = 0.0;
+        long mark = listener == null ? 0L : System.nanoTime();
+        do {
+            // compute the share each node sends along every outgoing edge
+            double danglingSum = pool.invoke(new PullStep(this, csr, reverse, bounds, 0,
+                    bounds.length - 1, ranks, next, shares, false, 0.0));
+
+            // pull the shares of the predecessors and sum up the change
+            double spread = this.dangling == DanglingPolicy.UNIFORM ? danglingSum / n : 0.0;
+            diff = pool.invoke(new PullStep(this, csr, reverse, bounds, 0, bounds.length - 1,
+                    ranks, next, shares, true, spread));
+
+            // swap the buffers
+            double[] tmp = ranks;
+            ranks = next;
+            next = tmp;
+            iterations++;
+            if (listener != null) {
+                long now = System.nanoTime();
+                listener.iteration(iterations, diff, now - mark, csr.getEdgeCount());
+                mark = now;
+            }
+        } while (diff >= this.tolerance && iterations < this.maxIterations);
+
+        PageRankResult result = new PageRankResult(ranks, iterations, diff,
+                diff < this.tolerance, (long) iterations * csr.getEdgeCount());
+        GraphEvents.ranked(event, "PARALLEL", csr.getSize(), csr.getEdgeCount(), result);
+        return result;
+    }
+
+    /**
+     * Method for splitting the nodes into chunks of about the same amount of pull work, which
+     * is one unit per node plus one per incoming edge.
+     * @param reverseOffsets, the row offsets of the reverse graph
+     * @param chunks, the number of chunks wanted
+     * @return an array where chunk c covers the nodes bounds[c] to bounds[c + 1] - 1
+     */
+    static int[] balancedChunks(int[] reverseOffsets, int chunks) {
+        int n = reverseOffsets.length - 1;
+        chunks = Math.max(1, Math.min(chunks, n));
+        long total = (long) reverseOffsets[n] + n;
+        int[] bounds = new int[chunks + 1];
+        for (int c = 1; c < chunks; c++) {
+            long target = total * c / chunks;
+            // smallest node whose cumulative work reaches the target
+            int lo = bounds[c - 1];
+            int hi = n;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if ((long) reverseOffsets[mid] + mid < target) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            bounds[c] = lo;
+        }
+        bounds[chunks] = n;
+        return bounds;
+    }
+
+    /**
+     * One phase of a parallel iteration over a range of chunks. The range is split in halves
+     * until a single chunk is left, and the partial sums are added up on the way back.
+     */
+    private static final class PullStep extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final PageRank engine;
+        private final CsrGraph csr;
+        private final CsrGraph reverse;
+        private final int[] bounds;
+        private final int lo;
+        private final int hi;
+        private final double[] ranks;
+        private final double[] next;
+        private final double[] shares;
+        private final boolean gather;
+        private final double spread;
+
+        PullStep(PageRank engine, CsrGraph csr, CsrGraph reverse, int[] bounds, int lo, int hi,
+                double[] ranks, double[] next, double[] shares, boolean gather, double spread) {
+            this.engine = engine;
+            this.csr = csr;
+            this.reverse = reverse;
+            this.bounds = bounds;
+            this.lo = lo;
+            this.hi = hi;
+            this.ranks = ranks;
+            this.next = next;
+            this.shares = shares;
+            this.gather = gather;
+            this.spread = spread;
+        }
+
+        @Override
+        protected Double compute() {
+            if (this.hi - this.lo > 1) {
+                int mid = (this.lo + this.hi) >>> 1;
+                PullStep left = new PullStep(this.engine, this.csr, this.reverse, this.bounds,
+                        this.lo, mid, this.ranks, this.next, this.shares, this.gather, this.spread);
+                PullStep right = new PullStep(this.engine, this.csr, this.reverse, this.bounds,
+                        mid, this.hi, this.ranks, this.next, this.shares, this.gather, this.spread);
+                left.fork();
+                double sum = right.compute();
+                return sum + left.join();
+            }
+            int from = this.bounds[this.lo];
+            int to = this.bounds[this.hi];
+            return this.gather ? gather(from, to) : scatter(from, to);
+        }
+
+        /**
+         * Computes the per-edge share of the nodes from to to - 1.
+         * @return the total rank of the dangling nodes in the range
+         */
+        private double scatter(int from, int to) {
+            int[] offsets = this.csr.offsets();
+            double danglingSum = 0.0;
+            for (int i = from; i < to; i++) {
+                int degree = offsets[i + 1] - offsets[i];
+                if (degree == 0) {
+                    this.shares[i] = 0.0;
+                    danglingSum += this.ranks[i];
+                } else {
+                    this.shares[i] = this.ranks[i] / degree;
+                }
+            }
+            return danglingSum;
+        }
+
+        /**
+         * Computes the new rank of the nodes from to to - 1.
+         * @return the sum of the changes of the ranks in the range, divided by the graph size
+         */
+        private double gather(int from, int to) {
+            int[] offsets = this.csr.offsets();
+            int[] reverseOffsets = this.reverse.offsets();
+            int[] sources = this.reverse.targets();
+            int n = this.ranks.length;
+            double damping = this.engine.damping;
+            double teleport = (1.0 - damping) / n;
+            boolean selfLoop = this.engine.dangling == DanglingPolicy.SELF_LOOP;
+            double diff = 0.0;
+            for (int i = from; i < to; i++) {
+                double sum = 0.0;
+                for (int k = reverseOffsets[i]; k < reverseOffsets[i + 1]; k++) {
+                    sum += this.shares[sources[k]];
+                }
+                double incoming = sum + this.spread;
+                if (selfLoop && offsets[i] == offsets[i + 1]) {
+                    incoming = this.ranks[i] + sum;
+                }
+                this.next[i] = teleport + damping * incoming;
+                diff += Math.abs(this.next[i] - this.ranks[i]) / n;
+            }
+            return diff;
+        }
+    }
+}
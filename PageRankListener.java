@@ -0,0 +1,17 @@
+/**
+ * Receives the progress of a PageRank run after every iteration. It is called on the thread
+ * that runs the iterations, so it should return quickly. A run without a listener does not
+ * read the clock.
+ */
+public interface PageRankListener {
+
+    /**
+     * Called after an iteration finished.
+     * @param iteration, the number of iterations done so far, starting at 1
+     * @param residual, the average change of a rank in this iteration, which the run compares
+     *        to the tolerance
+     * @param elapsedNanos, the time the iteration took
+     * @param edgesProcessed, the number of edges the iteration went through
+     */
+    void iteration(int iteration, double residual, long elapsedNanos, long edgesProcessed);
+}
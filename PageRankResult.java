@@ -0,0 +1,67 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The outcome of a PageRank run: the rank of every node as a primitive vector together with
+ * some statistics about the run.
+ */
+public class PageRankResult {
+    private final double[] ranks;
+    private final int iterations;
+    private final double residual;
+    private final boolean converged;
+    private final long edgesProcessed;
+
+    /**
+     * Creates a result.
+     * @param ranks, the rank of every node, indexed by node
+     * @param iterations, the number of iterations that were run
+     * @param residual, the average change of a rank in the last iteration
+     * @param converged, whether the run stopped because the tolerance was reached
+     * @param edgesProcessed, the number of edge relaxations done during the run
+     */
+    public PageRankResult(double[] ranks, int iterations, double residual, boolean converged,
+            long edgesProcessed) {
+        this.ranks = ranks;
+        this.iterations = iterations;
+        this.residual = residual;
+        this.converged = converged;
+        this.edgesProcessed = edgesProcessed;
+    }
+
+    /**
+     * Returns the rank vector. The array is not copied.
+     * @return the rank of every node, indexed by node
+     */
+    public double[] getRanks() {
+        return this.ranks;
+    }
+
+    public int getIterations() {
+        return this.iterations;
+    }
+
+    public double getResidual() {
+        return this.residual;
+    }
+
+    public boolean isConverged() {
+        return this.converged;
+    }
+
+    public long getEdgesProcessed() {
+        return this.edgesProcessed;
+    }
+
+    /**
+     * Builds a map view of the ranks, in the form returned by {@link Graph#pageRank()}.
+     * @return a new mutable map from each node to its rank
+     */
+    public Map<Integer, Double> toMap() {
+        Map<Integer, Double> map = new HashMap<Integer, Double>();
+        for (int i = 0; i < this.ranks.length; i++) {
+            map.put(i, this.ranks[i]);
+        }
+        return map;
+    }
+}
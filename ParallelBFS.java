@@ -0,0 +1,479 @@
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Level-synchronous breadth-first search with the frontier kept as a bitset. Each level is
+ * expanded in one of two directions. Top-down, the frontier nodes look at their out-edges for
+ * nodes that were not reached yet. Bottom-up, the unreached nodes look at their in-edges for a
+ * frontier node and stop at the first one. On small-world graphs the few huge middle levels
+ * reach most nodes at once, and bottom-up skips most of their edges. The direction is chosen
+ * per level from the edge counts of the frontier and of the unreached nodes, as proposed by
+ * Beamer et al., and large levels are split over a ForkJoinPool.
+ *
+ * Every reached node gets the smallest-numbered node of the previous level with an edge to it
+ * as parent, in both directions, so the result does not depend on thread scheduling. The
+ * levels are those of {@link BFS#bfsImpl}; the parents form an equally valid BFS tree.
+ */
+public class ParallelBFS {
+    public static final double DEFAULT_ALPHA = 14.0;
+    public static final double DEFAULT_BETA = 24.0;
+
+    // number of work chunks handed to each thread for a level
+    private static final int CHUNKS_PER_THREAD = 8;
+
+    private static final int TOP_DOWN = 0;
+    private static final int BOTTOM_UP = 1;
+    private static final int FINISH = 2;
+
+    private final double alpha;
+    private final double beta;
+
+    // the copy and reverse of the last graph searched, kept while its version is unchanged
+    // since each costs a pass over the edges
+    private Graph lastGraph;
+    private long lastVersion;
+    private CsrGraph lastCsr;
+    private CsrGraph lastReverse;
+
+    /**
+     * Creates an engine with the default switching thresholds.
+     */
+    public ParallelBFS() {
+        this(DEFAULT_ALPHA, DEFAULT_BETA);
+    }
+
+    /**
+     * Creates an engine with custom switching thresholds.
+     * @param alpha, the search turns bottom-up once the frontier has more than 1 / alpha of
+     *        the in-edges of the unreached nodes as out-edges
+     * @param beta, the search turns top-down again once fewer than 1 / beta of the nodes are
+     *        in the frontier
+     * @throws IllegalArgumentException if a threshold is not positive
+     */
+    public ParallelBFS(double alpha, double beta) {
+        if (!(alpha > 0.0) || !(beta > 0.0)) {
+            throw new IllegalArgumentException("Thresholds must be positive");
+        }
+        this.alpha = alpha;
+        this.beta = beta;
+    }
+
+    /**
+     * Searches the nodes reachable from a source.
+     * @param g, the graph to search
+     * @param src, the start/source node
+     * @param pool, the pool that expands large levels
+     * @return the parents and levels, with -1 for the nodes that were not reached
+     * @throws IllegalArgumentException if the graph or pool is null or src is not in the graph
+     */
+    public BfsResult search(Graph g, int src, ForkJoinPool pool) {
+        return run(g, src, pool, false);
+    }
+
+    /**
+     * Searches the whole graph like {@link BFS#bfsImpl}: first from the source, then from
+     * every node that is still unreached, in increasing order. Each of these roots is its own
+     * parent and has level 0.
+     * @param g, the graph to search
+     * @param src, the start/source node
+     * @param pool, the pool that expands large levels
+     * @return the parents and levels of every node
+     * @throws IllegalArgumentException if the graph or pool is null or src is not in the graph
+     */
+    public BfsResult searchAll(Graph g, int src, ForkJoinPool pool) {
+        return run(g, src, pool, true);
+    }
+
+    public double getAlpha() {
+        return this.alpha;
+    }
+
+    public double getBeta() {
+        return this.beta;
+    }
+
+    /**
+     * Method for running the search from src and, if all is set, from every unreached node.
+     */
+    private BfsResult run(Graph g, int src, ForkJoinPool pool, boolean all) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool can't be null");
+        }
+
+        // source not present in graph case
+        if (src > g.getSize() - 1 || src < 0) {
+            throw new IllegalArgumentException("" + src + " is not present in the graph");
+        }
+
+        Search s = new Search(csrOf(g), pool);
+        s.fromRoot(src);
+        if (all) {
+            // a single sweep over the nodes, since the ones before a root stay reached
+            for (int v = 0; v < s.n; v++) {
+                if ((s.visited[v >>> 6] & (1L << v)) == 0) {
+                    s.fromRoot(v);
+                }
+            }
+        }
+
+        int[] parents = new int[s.n];
+        for (int v = 0; v < s.n; v++) {
+            parents[v] = s.parents.get(v);
+        }
+        return new BfsResult(parents, s.levels, s.reached, s.depth, s.bottomUpSteps,
+                s.edgesChecked);
+    }
+
+    /**
+     * Method for returning the CSR form of a graph, reusing the one of the previous search if
+     * it was on the same graph and the graph did not change since. A new one drops the reverse.
+     */
+    private synchronized CsrGraph csrOf(Graph g) {
+        long version = g.getVersion();
+        if (g != this.lastGraph || version != this.lastVersion) {
+            this.lastCsr = CsrGraph.of(g);
+            this.lastReverse = null;
+            this.lastGraph = g;
+            this.lastVersion = version;
+        }
+        return this.lastCsr;
+    }
+
+    /**
+     * Method for returning the reverse of a graph returned by csrOf, reusing the one of the
+     * previous search if it was on the same graph.
+     */
+    private synchronized CsrGraph reverseOf(CsrGraph csr) {
+        if (csr != this.lastCsr) {
+            // another search replaced the cached graph in the meantime
+            return csr.transpose();
+        }
+        if (this.lastReverse == null) {
+            this.lastReverse = csr.transpose();
+        }
+        return this.lastReverse;
+    }
+
+    /**
+     * The state of one search. A small frontier is also kept as a list and expanded on the
+     * calling thread, so a level costs the size of its frontier and not a pass over the bitset.
+     */
+    private final class Search {
+        private final CsrGraph csr;
+        private final CsrGraph reverse;
+        private final ForkJoinPool pool;
+        private final int n;
+        private final int words;
+        private final int grain;
+
+        private final long[] visited;
+        private final long[] frontier;
+        private final AtomicLongArray next;
+        private final AtomicIntegerArray parents;
+        private final int[] levels;
+
+        // the frontier as a list, valid while it is sparse
+        private int[] queue;
+        private int queueSize;
+        private boolean sparse;
+
+        private long unexploredEdges;
+        private int reached;
+        private int depth;
+        private int bottomUpSteps;
+        private long edgesChecked;
+
+        Search(CsrGraph csr, ForkJoinPool pool) {
+            this.csr = csr;
+            this.reverse = reverseOf(csr);
+            this.pool = pool;
+            this.n = csr.getSize();
+            this.words = (this.n + 63) >>> 6;
+            this.grain = Math.max(1, this.words / (pool.getParallelism() * CHUNKS_PER_THREAD));
+            this.visited = new long[this.words];
+            this.frontier = new long[this.words];
+            this.next = new AtomicLongArray(this.words);
+            this.parents = new AtomicIntegerArray(this.n);
+            this.levels = new int[this.n];
+            this.queue = new int[16];
+            for (int v = 0; v < this.n; v++) {
+                this.parents.set(v, -1);
+                this.levels[v] = -1;
+            }
+            this.unexploredEdges = csr.getEdgeCount();
+        }
+
+        /**
+         * Method for searching from a root that was not reached yet.
+         */
+        void fromRoot(int root) {
+            int[] reverseOffsets = this.reverse.offsets();
+            this.parents.set(root, root);
+            this.levels[root] = 0;
+            this.visited[root >>> 6] |= 1L << root;
+            this.frontier[root >>> 6] |= 1L << root;
+            this.queue[0] = root;
+            this.queueSize = 1;
+            this.sparse = true;
+            this.reached++;
+            this.unexploredEdges -= reverseOffsets[root + 1] - reverseOffsets[root];
+
+            long frontierNodes = 1;
+            long frontierEdges = this.csr.outDegree(root);
+            boolean bottomUp = false;
+            int level = 0;
+            while (frontierNodes > 0) {
+                // pick the direction of this level
+                if (bottomUp) {
+                    bottomUp = frontierNodes >= this.n / beta;
+                } else {
+                    // a bottom-up level passes over every bitset word, so it must save more
+                    bottomUp = frontierEdges > unexploredEdges / alpha
+                            && frontierEdges > this.words;
+                }
+                level++;
+
+                long[] counts;
+                if (!bottomUp && this.sparse) {
+                    counts = sparseStep(level);
+                } else {
+                    long[] step = this.pool.invoke(new LevelStep(this,
+                            bottomUp ? BOTTOM_UP : TOP_DOWN, level, 0, this.words));
+                    this.edgesChecked += step[1];
+                    if (bottomUp) {
+                        this.bottomUpSteps++;
+                    }
+                    counts = this.pool.invoke(new LevelStep(this, FINISH, level, 0, this.words));
+                    if (counts[0] < this.words) {
+                        collectFrontier();
+                    } else {
+                        this.sparse = false;
+                    }
+                }
+                frontierNodes = counts[0];
+                frontierEdges = counts[1];
+                this.unexploredEdges -= counts[2];
+                this.reached += (int) frontierNodes;
+            }
+
+            // the last level found nothing, so the tree has levels 0 to level - 1
+            this.depth = Math.max(this.depth, level);
+        }
+
+        /**
+         * Method for expanding a small frontier top-down on the calling thread.
+         * @return the number of new frontier nodes, their out-edges and their in-edges
+         */
+        private long[] sparseStep(int level) {
+            int[] offsets = this.csr.offsets();
+            int[] targets = this.csr.targets();
+            int[] reverseOffsets = this.reverse.offsets();
+            int[] found = new int[16];
+            int count = 0;
+            for (int i = 0; i < this.queueSize; i++) {
+                int u = this.queue[i];
+                this.frontier[u >>> 6] &= ~(1L << u);
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int w = targets[k];
+                    if ((this.visited[w >>> 6] & (1L << w)) != 0) {
+                        continue;
+                    }
+                    int p = this.parents.get(w);
+                    if (p == -1) {
+                        if (count == found.length) {
+                            found = Arrays.copyOf(found, 2 * count);
+                        }
+                        found[count++] = w;
+                        this.parents.set(w, u);
+                    } else if (u < p) {
+                        this.parents.set(w, u);
+                    }
+                }
+                this.edgesChecked += offsets[u + 1] - offsets[u];
+            }
+
+            // the new nodes become the frontier
+            long[] counts = new long[3];
+            for (int i = 0; i < count; i++) {
+                int w = found[i];
+                this.visited[w >>> 6] |= 1L << w;
+                this.frontier[w >>> 6] |= 1L << w;
+                this.levels[w] = level;
+                counts[1] += offsets[w + 1] - offsets[w];
+                counts[2] += reverseOffsets[w + 1] - reverseOffsets[w];
+            }
+            counts[0] = count;
+            this.queue = found;
+            this.queueSize = count;
+            this.sparse = count < this.words;
+            return counts;
+        }
+
+        /**
+         * Method for turning a frontier that became small again into a list.
+         */
+        private void collectFrontier() {
+            int count = 0;
+            for (int i = 0; i < this.words; i++) {
+                for (long bits = this.frontier[i]; bits != 0; bits &= bits - 1) {
+                    if (count == this.queue.length) {
+                        this.queue = Arrays.copyOf(this.queue, 2 * count);
+                    }
+                    this.queue[count++] = (i << 6) + Long.numberOfTrailingZeros(bits);
+                }
+            }
+            this.queueSize = count;
+            this.sparse = true;
+        }
+    }
+
+    /**
+     * One phase of a level over a range of bitset words. TOP_DOWN and BOTTOM_UP mark the
+     * nodes of the next level and return the number of edges they looked at in slot 1.
+     * FINISH moves the marked nodes into the frontier and returns their number, out-edges and
+     * in-edges.
+     */
+    private static final class LevelStep extends RecursiveTask<long[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final Search s;
+        private final int mode;
+        private final int level;
+        private final int lo;
+        private final int hi;
+
+        LevelStep(Search s, int mode, int level, int lo, int hi) {
+            this.s = s;
+            this.mode = mode;
+            this.level = level;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (this.hi - this.lo > this.s.grain) {
+                int mid = (this.lo + this.hi) >>> 1;
+                LevelStep left = new LevelStep(this.s, this.mode, this.level, this.lo, mid);
+                LevelStep right = new LevelStep(this.s, this.mode, this.level, mid, this.hi);
+                left.fork();
+                long[] sum = right.compute();
+                long[] other = left.join();
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += other[i];
+                }
+                return sum;
+            }
+            if (this.mode == TOP_DOWN) {
+                return topDown();
+            }
+            return this.mode == BOTTOM_UP ? bottomUp() : finish();
+        }
+
+        /**
+         * Marks the unreached out-neighbors of the frontier nodes in the range, keeping the
+         * smallest frontier node as the parent of each.
+         */
+        private long[] topDown() {
+            int[] offsets = this.s.csr.offsets();
+            int[] targets = this.s.csr.targets();
+            long checked = 0;
+            for (int i = this.lo; i < this.hi; i++) {
+                for (long bits = this.s.frontier[i]; bits != 0; bits &= bits - 1) {
+                    int u = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                        int w = targets[k];
+                        if ((this.s.visited[w >>> 6] & (1L << w)) == 0) {
+                            claim(w, u);
+                        }
+                    }
+                    checked += offsets[u + 1] - offsets[u];
+                }
+            }
+            return new long[] {0, checked, 0};
+        }
+
+        /**
+         * Method for making u the parent of w unless a smaller node already is.
+         */
+        private void claim(int w, int u) {
+            while (true) {
+                int p = this.s.parents.get(w);
+                if (p != -1 && p <= u) {
+                    return;
+                }
+                if (this.s.parents.compareAndSet(w, p, u)) {
+                    if (p == -1) {
+                        long bit = 1L << w;
+                        long word;
+                        do {
+                            word = this.s.next.get(w >>> 6);
+                        } while (!this.s.next.compareAndSet(w >>> 6, word, word | bit));
+                    }
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Marks the unreached nodes in the range that have a frontier node as predecessor. The
+         * predecessors are sorted, so the first one found is the smallest.
+         */
+        private long[] bottomUp() {
+            int[] reverseOffsets = this.s.reverse.offsets();
+            int[] sources = this.s.reverse.targets();
+            long checked = 0;
+            for (int i = this.lo; i < this.hi; i++) {
+                long unreached = ~this.s.visited[i];
+                if (i == this.s.words - 1 && (this.s.n & 63) != 0) {
+                    unreached &= (1L << this.s.n) - 1;
+                }
+                long marked = 0;
+                for (long bits = unreached; bits != 0; bits &= bits - 1) {
+                    int v = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    for (int k = reverseOffsets[v]; k < reverseOffsets[v + 1]; k++) {
+                        int u = sources[k];
+                        checked++;
+                        if ((this.s.frontier[u >>> 6] & (1L << u)) != 0) {
+                            this.s.parents.set(v, u);
+                            marked |= 1L << v;
+                            break;
+                        }
+                    }
+                }
+                this.s.next.set(i, marked);
+            }
+            return new long[] {0, checked, 0};
+        }
+
+        /**
+         * Makes the marked nodes in the range the new frontier.
+         */
+        private long[] finish() {
+            int[] offsets = this.s.csr.offsets();
+            int[] reverseOffsets = this.s.reverse.offsets();
+            long[] counts = new long[3];
+            for (int i = this.lo; i < this.hi; i++) {
+                long bits = this.s.next.get(i);
+                this.s.next.set(i, 0);
+                this.s.frontier[i] = bits;
+                this.s.visited[i] |= bits;
+                counts[0] += Long.bitCount(bits);
+                for (; bits != 0; bits &= bits - 1) {
+                    int v = (i << 6) + Long.numberOfTrailingZeros(bits);
+                    this.s.levels[v] = this.level;
+                    counts[1] += offsets[v + 1] - offsets[v];
+                    counts[2] += reverseOffsets[v + 1] - reverseOffsets[v];
+                }
+            }
+            return counts;
+        }
+    }
+}
@@ -0,0 +1,274 @@
+import java.util.SplittableRandom;
+
+/**
+ * Personalized PageRank queries: the rank of every node for a surfer who teleports back to a
+ * set of seed nodes instead of to a random node. A query runs a local forward push. The seeds
+ * start with all the residual rank, and a node whose residual exceeds epsilon times its
+ * out-degree keeps 1 - damping of it and pushes the rest evenly along its edges. A node without
+ * edges keeps all of it, like in {@link PageRank.DanglingPolicy#SELF_LOOP}. Only nodes that
+ * receive enough residual are ever looked at, so a query does not depend on the size of the
+ * graph.
+ *
+ * The residual left when the push stops is the most rank any node can be missing. If random
+ * walks were precomputed, the residual of every node is then spread over the end points of the
+ * walks that start there, which makes the estimate unbiased.
+ *
+ * The queries see the graph as it was when this object was created. Any number of threads
+ * can query at once.
+ */
+public class PersonalizedPageRank {
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final double DEFAULT_EPSILON = 0.000001;
+
+    private final CsrGraph csr;
+    private final double damping;
+    private final double epsilon;
+    private final int walksPerNode;
+    private final int[] walkEnds;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Prepares queries with a damping of 0.85, an epsilon of 0.000001 and no random walks.
+     * @param g, the graph
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public PersonalizedPageRank(Graph g) {
+        this(g, DEFAULT_DAMPING, DEFAULT_EPSILON, 0, 0);
+    }
+
+    /**
+     * Prepares queries and precomputes the random walks.
+     * @param g, the graph
+     * @param damping, the probability of following a link, below 1
+     * @param epsilon, the residual per out-edge a node may keep without pushing
+     * @param walksPerNode, the number of random walks stored for every node, or 0 for none
+     * @param seed, the seed of the random walks
+     * @throws IllegalArgumentException if the graph is null or a setting is out of range
+     */
+    public PersonalizedPageRank(Graph g, double damping, double epsilon, int walksPerNode,
+            long seed) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        if (!(damping >= 0.0 && damping < 1.0)) {
+            throw new IllegalArgumentException("Damping must be at least 0 and below 1");
+        }
+        if (!(epsilon > 0.0)) {
+            throw new IllegalArgumentException("Epsilon must be positive");
+        }
+        if (walksPerNode < 0) {
+            throw new IllegalArgumentException("Number of walks cannot be negative");
+        }
+        if ((long) g.getSize() * walksPerNode > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too many walks for the graph size");
+        }
+        this.csr = CsrGraph.of(g);
+        this.damping = damping;
+        this.epsilon = epsilon;
+        this.walksPerNode = walksPerNode;
+        final int n = this.csr.getSize();
+        this.walkEnds = new int[n * walksPerNode];
+        this.scratch = new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(n);
+            }
+        };
+
+        // each walk stops with probability 1 - damping at every step, and at a dangling node
+        int[] offsets = this.csr.offsets();
+        int[] targets = this.csr.targets();
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int u = 0; u < n; u++) {
+            for (int i = 0; i < walksPerNode; i++) {
+                int v = u;
+                while (offsets[v + 1] > offsets[v] && random.nextDouble() < damping) {
+                    v = targets[offsets[v] + random.nextInt(offsets[v + 1] - offsets[v])];
+                }
+                this.walkEnds[u * walksPerNode + i] = v;
+            }
+        }
+    }
+
+    /**
+     * Returns the nodes with the highest rank relative to a single seed.
+     * @param seed the node the surfer teleports back to
+     * @param k the number of nodes wanted
+     * @return the min(k, touched) best nodes with their ranks
+     * @throws IllegalArgumentException if the seed is not in the graph or k is negative
+     */
+    public TopRanks query(int seed, int k) {
+        return query(new int[] {seed}, k);
+    }
+
+    /**
+     * Returns the nodes with the highest rank relative to a set of seeds, which share the
+     * teleport probability evenly.
+     * @param seeds the nodes the surfer teleports back to
+     * @param k the number of nodes wanted
+     * @return the min(k, touched) best nodes with their ranks
+     * @throws IllegalArgumentException if there are no seeds, a seed is not in the graph or
+     *         k is negative
+     */
+    public TopRanks query(int[] seeds, int k) {
+        if (seeds == null || seeds.length == 0) {
+            throw new IllegalArgumentException("Need at least one seed");
+        }
+        if (k < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+        for (int seed : seeds) {
+            if (seed < 0 || seed >= this.csr.getSize()) {
+                throw new IllegalArgumentException("" + seed + " not present in the graph");
+            }
+        }
+
+        Scratch s = this.scratch.get();
+        try {
+            for (int seed : seeds) {
+                s.touch(seed);
+                s.residuals[seed] += 1.0 / seeds.length;
+                enqueue(s, seed);
+            }
+            long pushes = push(s);
+
+            // the residual that is left is what the estimate is missing
+            int pushed = s.touchedCount;
+            double residual = 0.0;
+            for (int i = 0; i < pushed; i++) {
+                residual += s.residuals[s.touched[i]];
+            }
+            if (this.walksPerNode > 0) {
+                for (int i = 0; i < pushed; i++) {
+                    int u = s.touched[i];
+                    double share = s.residuals[u] / this.walksPerNode;
+                    if (share == 0.0) {
+                        continue;
+                    }
+                    for (int w = u * this.walksPerNode; w < (u + 1) * this.walksPerNode; w++) {
+                        int end = this.walkEnds[w];
+                        s.touch(end);
+                        s.ranks[end] += share;
+                    }
+                    s.residuals[u] = 0.0;
+                }
+                residual = 0.0;
+            }
+
+            int[] nodes = RankQuery.topK(s.ranks, s.touched, s.touchedCount, k);
+            double[] ranks = new double[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                ranks[i] = s.ranks[nodes[i]];
+            }
+            return new TopRanks(nodes, ranks, residual, s.touchedCount, pushes);
+        } finally {
+            s.clear();
+        }
+    }
+
+    public double getDamping() {
+        return this.damping;
+    }
+
+    public double getEpsilon() {
+        return this.epsilon;
+    }
+
+    public int getWalksPerNode() {
+        return this.walksPerNode;
+    }
+
+    /**
+     * Method for pushing residuals until every node's residual is at most epsilon times its
+     * out-degree.
+     * @return the number of pushes
+     */
+    private long push(Scratch s) {
+        int[] offsets = this.csr.offsets();
+        int[] targets = this.csr.targets();
+        long pushes = 0;
+        while (s.count > 0) {
+            int u = s.queue[s.head];
+            s.head = s.head + 1 == s.queue.length ? 0 : s.head + 1;
+            s.count--;
+            s.queued[u] = false;
+            double r = s.residuals[u];
+            s.residuals[u] = 0.0;
+            pushes++;
+
+            int degree = offsets[u + 1] - offsets[u];
+            if (degree == 0) {
+                s.ranks[u] += r;
+                continue;
+            }
+            s.ranks[u] += (1.0 - this.damping) * r;
+            double share = this.damping * r / degree;
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int w = targets[k];
+                s.touch(w);
+                s.residuals[w] += share;
+                enqueue(s, w);
+            }
+        }
+        return pushes;
+    }
+
+    /**
+     * Method for queueing a node if its residual is too large and it is not queued yet.
+     */
+    private void enqueue(Scratch s, int v) {
+        int degree = this.csr.outDegree(v);
+        if (!s.queued[v] && s.residuals[v] > this.epsilon * Math.max(degree, 1)) {
+            s.queued[v] = true;
+            int tail = s.head + s.count;
+            s.queue[tail >= s.queue.length ? tail - s.queue.length : tail] = v;
+            s.count++;
+        }
+    }
+
+    /**
+     * The arrays of one thread. Only touched nodes can be nonzero, and they are cleared after
+     * every query.
+     */
+    private static final class Scratch {
+        private final double[] ranks;
+        private final double[] residuals;
+        private final boolean[] queued;
+        private final boolean[] seen;
+        private final int[] queue;
+        private final int[] touched;
+        private int touchedCount;
+        private int head;
+        private int count;
+
+        Scratch(int n) {
+            this.ranks = new double[n];
+            this.residuals = new double[n];
+            this.queued = new boolean[n];
+            this.seen = new boolean[n];
+            this.queue = new int[n];
+            this.touched = new int[n];
+        }
+
+        void touch(int v) {
+            if (!this.seen[v]) {
+                this.seen[v] = true;
+                this.touched[this.touchedCount++] = v;
+            }
+        }
+
+        void clear() {
+            for (int i = 0; i < this.touchedCount; i++) {
+                int v = this.touched[i];
+                this.ranks[v] = 0.0;
+                this.residuals[v] = 0.0;
+                this.queued[v] = false;
+                this.seen[v] = false;
+            }
+            this.touchedCount = 0;
+            this.head = 0;
+            this.count = 0;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ * Queries over a primitive rank vector. Nodes are ordered by decreasing rank, and nodes with
+ * the same rank by increasing id, so every query has exactly one answer.
+ */
+public final class RankQuery {
+
+    /**
+     * Returns the k nodes with the highest rank using a bounded heap, in O(n log k).
+     * @param ranks, the rank of every node, indexed by node
+     * @param k, the number of nodes wanted
+     * @return the ids of the min(k, n) best nodes, best first
+     * @throws IllegalArgumentException if ranks is null or k is negative
+     */
+    public static int[] topK(double[] ranks, int k) {
+        if (ranks == null) {
+            throw new IllegalArgumentException("Ranks can't be null");
+        }
+        return topK(ranks, null, ranks.length, k);
+    }
+
+    /**
+     * Returns the k best nodes among a set of candidates using a bounded heap.
+     * @param ranks, the rank of every node, indexed by node
+     * @param candidates, the nodes to choose from, or null to choose from nodes 0 to count - 1
+     * @param count, the number of candidates, taken from the start of candidates
+     * @param k, the number of nodes wanted
+     * @return the ids of the min(k, count) best candidates, best first
+     * @throws IllegalArgumentException if ranks is null or k or count is negative
+     */
+    public static int[] topK(double[] ranks, int[] candidates, int count, int k) {
+        if (ranks == null) {
+            throw new IllegalArgumentException("Ranks can't be null");
+        }
+        if (k < 0 || count < 0) {
+            throw new IllegalArgumentException("Counts cannot be negative");
+        }
+
+        // min-heap of the best nodes so far, with the worst of them at the root
+        int size = Math.min(k, count);
+        int[] heap = new int[size];
+        int used = 0;
+        for (int i = 0; i < count; i++) {
+            int v = candidates == null ? i : candidates[i];
+            if (used < size) {
+                heap[used] = v;
+                siftUp(heap, used, ranks);
+                used++;
+            } else if (size > 0 && better(v, heap[0], ranks)) {
+                heap[0] = v;
+                siftDown(heap, 0, size, ranks);
+            }
+        }
+
+        // take the worst node off the root until the heap is empty, filling from the back
+        for (int end = size - 1; end > 0; end--) {
+            int worst = heap[0];
+            heap[0] = heap[end];
+            heap[end] = worst;
+            siftDown(heap, 0, end, ranks);
+        }
+        return heap;
+    }
+
+    /**
+     * Returns every node ordered by rank.
+     * @param ranks, the rank of every node, indexed by node
+     * @return the ids of all nodes, best first
+     * @throws IllegalArgumentException if ranks is null
+     */
+    public static int[] order(double[] ranks) {
+        if (ranks == null) {
+            throw new IllegalArgumentException("Ranks can't be null");
+        }
+        return topK(ranks, ranks.length);
+    }
+
+    /**
+     * Method for checking whether node a comes before node b in rank order.
+     */
+    private static boolean better(int a, int b, double[] ranks) {
+        return ranks[a] > ranks[b] || (ranks[a] == ranks[b] && a < b);
+    }
+
+    private static void siftUp(int[] heap, int i, double[] ranks) {
+        int v = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!better(heap[parent], v, ranks)) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = v;
+    }
+
+    private static void siftDown(int[] heap, int i, int size, double[] ranks) {
+        int v = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && better(heap[child], heap[child + 1], ranks)) {
+                child++;
+            }
+            if (!better(v, heap[child], ranks)) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = v;
+    }
+}
@@ -0,0 +1,51 @@
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes ranks in the ranks_*.txt format, one "name : rank" line per node, straight from the
+ * rank vector and the dictionary.
+ */
+public final class RankWriter {
+
+    /**
+     * Writes the specified nodes with their ranks, in the given order.
+     * @param out, where to write; it is flushed but not closed
+     * @param order, the nodes to write
+     * @param ranks, the rank of every node, indexed by node
+     * @param names, the names of the nodes
+     * @throws IOException if writing fails
+     */
+    public static void write(Writer out, int[] order, double[] ranks, NodeDictionary names)
+            throws IOException {
+        BufferedWriter bw = out instanceof BufferedWriter
+                ? (BufferedWriter) out : new BufferedWriter(out, 1 << 16);
+        for (int v : order) {
+            bw.write(names.getName(v));
+            bw.write(" : ");
+            bw.write(Double.toString(ranks[v]));
+            bw.newLine();
+        }
+        bw.flush();
+    }
+
+    /**
+     * Writes every node ordered by rank to a file, or only the best ones.
+     * @param fileName, the file to write
+     * @param ranks, the rank of every node, indexed by node
+     * @param names, the names of the nodes
+     * @param k, the number of nodes to write, or a negative number for all of them
+     * @throws IOException if the file cannot be written
+     */
+    public static void writeFile(String fileName, double[] ranks, NodeDictionary names, int k)
+            throws IOException {
+        int[] order = k < 0 ? RankQuery.order(ranks) : RankQuery.topK(ranks, k);
+        Writer out = new FileWriter(fileName);
+        try {
+            write(out, order, ranks, names);
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Pass over the rows of a graph in node order, for algorithms that read every row once per
+ * iteration, like power iteration. A row is only valid until the next one is read, so a
+ * representation that decodes its rows, like {@link CompressedGraph}, can stream them through
+ * reused buffers instead of being copied as a whole.
+ */
+interface RowScan {
+
+    /**
+     * Goes back to node 0.
+     */
+    void reset();
+
+    /**
+     * Moves to the row of the next node.
+     * @return the out-degree of the node
+     * @throws IllegalStateException if every row has been read
+     */
+    int next();
+
+    /**
+     * Returns the array holding the current row, whose neighbors are the out-degree entries
+     * starting at start(), in increasing order.
+     * @return the array holding the row
+     */
+    int[] row();
+
+    /**
+     * Returns the position of the first neighbor of the current row in row().
+     * @return the position of the row in its array
+     */
+    int start();
+
+    /**
+     * Returns the number of edges of all rows together.
+     * @return the number of edges of the graph
+     */
+    long edgeCount();
+}
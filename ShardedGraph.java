@@ -0,0 +1,327 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A graph kept on disk in shards, for graphs whose edges do not fit in the heap. The nodes are
+ * split into intervals of consecutive ids, and shard p holds every edge whose destination is
+ * in interval p, sorted by source and then destination, without duplicates. Only the names,
+ * the out-degrees and the interval bounds stay in memory.
+ *
+ * A shard file is a sequence of little-endian int pairs, source then destination. Streaming a
+ * shard reads the ranks of the sources in increasing order and only adds to the ranks of one
+ * interval, which is how GraphChi and X-Stream keep random access out of the edge scan.
+ */
+public final class ShardedGraph {
+    // bounds on the number of edges in a shard
+    private static final long MIN_SHARD_EDGES = 1 << 16;
+    private static final long MAX_SHARD_EDGES = 1 << 27;
+
+    // bytes of memory every node needs while ranking: two rank vectors and its out-degree
+    static final int BYTES_PER_NODE = 20;
+
+    // bytes of memory every shard edge needs while it is sorted and while it is streamed
+    private static final int BYTES_PER_SHARD_EDGE = 16;
+
+    // largest part of a file mapped at once, a multiple of the 8 bytes of an edge
+    private static final int WINDOW = 1 << 30;
+
+    private final File directory;
+    private final NodeDictionary names;
+    private final int[] starts;
+    private final int[] outDegrees;
+    private final long[] shardEdges;
+    private final long edgeCount;
+
+    private ShardedGraph(File directory, NodeDictionary names, int[] starts, int[] outDegrees,
+            long[] shardEdges) {
+        this.directory = directory;
+        this.names = names;
+        this.starts = starts;
+        this.outDegrees = outDegrees;
+        this.shardEdges = shardEdges;
+        long total = 0;
+        for (long edges : shardEdges) {
+            total += edges;
+        }
+        this.edgeCount = total;
+    }
+
+    /**
+     * Splits an edge list file into shards. The file is parsed a slice at a time, with node
+     * ids given in order of first appearance like {@link EdgeListLoader}, and its edges are
+     * spilled to disk. The shards are then sized so that the rank vectors and one shard being
+     * sorted or streamed fit in the memory budget, together with the next shard being read
+     * ahead.
+     * @param edgeListFile, the edge list to read
+     * @param directory, the directory to write the shards to, created if needed
+     * @param memoryBudget, the memory in bytes that ranking may use, not counting the names
+     * @return the sharded graph
+     * @throws IOException if a file cannot be read or written
+     * @throws IllegalArgumentException if the budget is not positive or a line does not hold
+     *         two names
+     */
+    public static ShardedGraph partition(String edgeListFile, String directory,
+            long memoryBudget) throws IOException {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Memory budget must be positive");
+        }
+        File dir = new File(directory);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+
+        // parse the edge list a slice at a time and spill the edges in file order
+        NodeDictionary names = new NodeDictionary();
+        int[] inDegrees = new int[1024];
+        File spill = new File(dir, "edges.bin");
+        long slice = Math.max(1 << 20, Math.min(1 << 28, memoryBudget / 8));
+        RandomAccessFile in = new RandomAccessFile(edgeListFile, "r");
+        EdgeWriter out = new EdgeWriter(spill, 1 << 16);
+        try {
+            FileChannel channel = in.getChannel();
+            long size = channel.size();
+            EdgeBuffer edges = new EdgeBuffer();
+            long from = 0;
+            while (from < size) {
+                long to = EdgeListLoader.lineStart(channel, Math.min(size, from + slice));
+                edges.clear();
+                EdgeListLoader.parseRange(channel, from, to, names, edges);
+                if (inDegrees.length < names.size()) {
+                    inDegrees = Arrays.copyOf(inDegrees,
+                            Math.max(2 * inDegrees.length, names.size()));
+                }
+                for (int e = 0; e < edges.size(); e++) {
+                    int v = edges.getDestination(e);
+                    out.write(edges.getSource(e), v);
+                    inDegrees[v]++;
+                }
+                from = to;
+            }
+        } finally {
+            in.close();
+            out.close();
+        }
+
+        // cut the nodes into intervals of at most maxEdges incoming edges; a node with more
+        // gets an interval of its own
+        int n = names.size();
+        long maxEdges = (memoryBudget - (long) BYTES_PER_NODE * n) / BYTES_PER_SHARD_EDGE;
+        maxEdges = Math.max(MIN_SHARD_EDGES, Math.min(MAX_SHARD_EDGES, maxEdges));
+        int[] starts = new int[16];
+        int shards = 0;
+        long inInterval = 0;
+        for (int v = 0; v < n; v++) {
+            if (v == 0 || inInterval + inDegrees[v] > maxEdges) {
+                if (shards + 1 == starts.length) {
+                    starts = Arrays.copyOf(starts, 2 * starts.length);
+                }
+                starts[shards++] = v;
+                inInterval = 0;
+            }
+            inInterval += inDegrees[v];
+        }
+        starts[shards] = n;
+        starts = Arrays.copyOf(starts, shards + 1);
+
+        // move every edge to the file of its shard
+        long share = memoryBudget / (4L * Math.max(1, shards));
+        int buffer = (int) Math.max(1 << 12, Math.min(1 << 20, share)) & ~7;
+        EdgeWriter[] writers = new EdgeWriter[shards];
+        long[] counts = new long[shards];
+        try {
+            for (int p = 0; p < shards; p++) {
+                writers[p] = new EdgeWriter(unsortedFile(dir, p), buffer);
+            }
+            RandomAccessFile spilled = new RandomAccessFile(spill, "r");
+            try {
+                FileChannel channel = spilled.getChannel();
+                long size = channel.size();
+                for (long position = 0; position < size; position += WINDOW) {
+                    IntBuffer ints = map(channel, position, Math.min(WINDOW, size - position));
+                    while (ints.hasRemaining()) {
+                        int u = ints.get();
+                        int v = ints.get();
+                        int p = Arrays.binarySearch(starts, 0, shards, v);
+                        p = p >= 0 ? p : -p - 2;
+                        writers[p].write(u, v);
+                        counts[p]++;
+                    }
+                }
+            } finally {
+                spilled.close();
+            }
+        } finally {
+            for (EdgeWriter writer : writers) {
+                if (writer != null) {
+                    writer.close();
+                }
+            }
+        }
+        delete(spill);
+
+        // sort every shard by source, drop the duplicates and count the out-degrees
+        int[] outDegrees = new int[n];
+        long[] shardEdges = new long[shards];
+        for (int p = 0; p < shards; p++) {
+            File unsorted = unsortedFile(dir, p);
+            long[] keys = new long[(int) counts[p]];
+            RandomAccessFile file = new RandomAccessFile(unsorted, "r");
+            try {
+                IntBuffer ints = map(file.getChannel(), 0, 8L * keys.length);
+                for (int i = 0; i < keys.length; i++) {
+                    keys[i] = (long) ints.get() << 32 | (ints.get() & 0xffffffffL);
+                }
+            } finally {
+                file.close();
+            }
+            delete(unsorted);
+            Arrays.sort(keys);
+
+            EdgeWriter writer = new EdgeWriter(shardFile(dir, p), 1 << 16);
+            try {
+                for (int i = 0; i < keys.length; i++) {
+                    if (i > 0 && keys[i] == keys[i - 1]) {
+                        continue;
+                    }
+                    int u = (int) (keys[i] >>> 32);
+                    writer.write(u, (int) keys[i]);
+                    outDegrees[u]++;
+                    shardEdges[p]++;
+                }
+            } finally {
+                writer.close();
+            }
+        }
+        return new ShardedGraph(dir, names, starts, outDegrees, shardEdges);
+    }
+
+    public int getSize() {
+        return this.outDegrees.length;
+    }
+
+    public long getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    public int getShardCount() {
+        return this.shardEdges.length;
+    }
+
+    /**
+     * Returns the number of edges of a shard.
+     * @param p the shard
+     * @return the edges in the file of shard p
+     * @throws IllegalArgumentException if there is no such shard
+     */
+    public long getShardEdges(int p) {
+        if (p < 0 || p >= this.shardEdges.length) {
+            throw new IllegalArgumentException("No shard " + p);
+        }
+        return this.shardEdges[p];
+    }
+
+    public NodeDictionary getDictionary() {
+        return this.names;
+    }
+
+    /**
+     * Removes the shard files from disk. The graph cannot be ranked afterwards.
+     */
+    public void delete() {
+        for (int p = 0; p < this.shardEdges.length; p++) {
+            delete(shardFile(this.directory, p));
+        }
+    }
+
+    /**
+     * Returns the interval bounds. The array is not copied.
+     * @return an array where shard p holds the edges into nodes starts[p] to starts[p + 1] - 1
+     */
+    int[] starts() {
+        return this.starts;
+    }
+
+    /**
+     * Returns the out-degrees. The array is not copied.
+     * @return the number of edges from every node, indexed by node
+     */
+    int[] outDegrees() {
+        return this.outDegrees;
+    }
+
+    File shardFile(int p) {
+        return shardFile(this.directory, p);
+    }
+
+    /**
+     * Method for mapping part of a file of edges as little-endian ints.
+     */
+    static IntBuffer map(FileChannel channel, long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static File shardFile(File directory, int p) {
+        return new File(directory, "shard-" + p + ".bin");
+    }
+
+    private static File unsortedFile(File directory, int p) {
+        return new File(directory, "shard-" + p + ".unsorted");
+    }
+
+    /**
+     * Method for removing a file, or removing it when the JVM exits if a mapping still holds it
+     * open, which only some systems refuse.
+     */
+    private static void delete(File file) {
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Appends edges to a file as little-endian int pairs through a buffer.
+     */
+    private static final class EdgeWriter {
+        private final RandomAccessFile file;
+        private final FileChannel channel;
+        private final ByteBuffer buffer;
+
+        EdgeWriter(File target, int capacity) throws IOException {
+            this.file = new RandomAccessFile(target, "rw");
+            this.file.setLength(0);
+            this.channel = this.file.getChannel();
+            this.buffer = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        void write(int u, int v) throws IOException {
+            if (this.buffer.remaining() < 8) {
+                flush();
+            }
+            this.buffer.putInt(u);
+            this.buffer.putInt(v);
+        }
+
+        private void flush() throws IOException {
+            this.buffer.flip();
+            while (this.buffer.hasRemaining()) {
+                this.channel.write(this.buffer);
+            }
+            this.buffer.clear();
+        }
+
+        void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                this.file.close();
+            }
+        }
+    }
+}
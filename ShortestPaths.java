@@ -0,0 +1,521 @@
+import java.util.Arrays;
+
+/**
+ * Answers shortest-path queries on a fixed graph. Single queries run a bidirectional BFS that
+ * grows a forward frontier from the source and a reverse frontier from the target, always
+ * expanding the side with fewer edges to look at, and stops at the level where they meet.
+ * All scratch arrays are kept per thread and stamped with a query number instead of being
+ * cleared, so a query only touches the nodes it visits and allocates nothing but its result.
+ *
+ * The queries see the graph as it was when this object was created. Any number of threads
+ * can query at once.
+ */
+public class ShortestPaths {
+    // number of sources answered by one sweep of a batch distance query
+    private static final int SWEEP_WIDTH = 64;
+
+    private final CsrGraph csr;
+    private final CsrGraph reverse;
+    private final ThreadLocal<Scratch> scratch;
+
+    /**
+     * Prepares shortest-path queries on a graph.
+     * @param g, the graph
+     * @throws IllegalArgumentException if the specified graph is null
+     */
+    public ShortestPaths(Graph g) {
+        // null graph case
+        if (g == null) {
+            throw new IllegalArgumentException("Graph can't be null");
+        }
+        this.csr = CsrGraph.of(g);
+        this.reverse = this.csr.transpose();
+        this.scratch = scratchFor(this.csr.getSize());
+    }
+
+    /**
+     * Prepares shortest-path queries on a graph whose reverse was already built.
+     * @param csr, the graph
+     * @param reverse, the reverse of csr
+     */
+    ShortestPaths(CsrGraph csr, CsrGraph reverse) {
+        this.csr = csr;
+        this.reverse = reverse;
+        this.scratch = scratchFor(csr.getSize());
+    }
+
+    private static ThreadLocal<Scratch> scratchFor(final int n) {
+        return new ThreadLocal<Scratch>() {
+            @Override
+            protected Scratch initialValue() {
+                return new Scratch(n);
+            }
+        };
+    }
+
+    /**
+     * Returns a shortest path from src to tgt. If there are multiple shortest paths, this
+     * method returns any one of them.
+     * @param src the node from which to search
+     * @param tgt the node to find via {@code src}
+     * @return the nodes of the path from src to tgt, or an empty array if there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int[] path(int src, int tgt) {
+        checkNode(src);
+        checkNode(tgt);
+        Scratch s = this.scratch.get();
+        int length = meet(s, src, tgt);
+        if (length < 0) {
+            return new int[0];
+        }
+
+        // walk from the meeting node back to the source and on to the target
+        int[] path = new int[length + 1];
+        int meet = s.meet;
+        for (int v = meet, i = s.forwardDist[meet]; i >= 0; i--) {
+            path[i] = v;
+            v = s.forwardParent[v];
+        }
+        for (int v = meet, i = s.forwardDist[meet]; i < length; i++) {
+            v = s.backwardParent[v];
+            path[i + 1] = v;
+        }
+        return path;
+    }
+
+    /**
+     * Returns the length of a shortest path from src to tgt.
+     * @param src the node from which to search
+     * @param tgt the node to find via {@code src}
+     * @return the number of edges on a shortest path, or -1 if there is no path
+     * @throws IllegalArgumentException if src and/or tgt is not in the graph
+     */
+    public int distance(int src, int tgt) {
+        checkNode(src);
+        checkNode(tgt);
+        return meet(this.scratch.get(), src, tgt);
+    }
+
+    /**
+     * Returns the distances from one source to many targets with a single BFS that stops as
+     * soon as every target has been reached.
+     * @param src the node from which to search
+     * @param targets the nodes to find
+     * @return the distance to every target, in the order of targets, or -1 for the ones that
+     *         cannot be reached
+     * @throws IllegalArgumentException if targets is null or a node is not in the graph
+     */
+    public int[] distances(int src, int[] targets) {
+        checkNode(src);
+        checkNodes(targets);
+        Scratch s = this.scratch.get();
+        sweep(s, src, targets, targets.length);
+        int[] result = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            result[i] = s.forwardStamp[targets[i]] == s.epoch ? s.forwardDist[targets[i]] : -1;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a shortest path for every (source, target) pair. Pairs that share a source are
+     * answered by a single BFS from it and the others by a bidirectional BFS each.
+     * @param sources the node each path starts at
+     * @param targets the node each path ends at
+     * @return the path of every pair, in the order of the pairs, or an empty array if the pair
+     *         has no path
+     * @throws IllegalArgumentException if the arrays are null or differ in length, or if a
+     *         node is not in the graph
+     */
+    public int[][] paths(int[] sources, int[] targets) {
+        long[] pairs = sortPairs(sources, targets);
+        Scratch s = this.scratch.get();
+        int[][] result = new int[pairs.length][];
+        int[] group = new int[pairs.length];
+        int start = 0;
+        while (start < pairs.length) {
+            int src = (int) (pairs[start] >>> 32);
+            int end = start + 1;
+            while (end < pairs.length && (int) (pairs[end] >>> 32) == src) {
+                end++;
+            }
+            if (end - start == 1) {
+                int pair = (int) pairs[start];
+                result[pair] = path(src, targets[pair]);
+            } else {
+                // one BFS from the shared source, then walk the parents back from each target
+                for (int i = start; i < end; i++) {
+                    group[i - start] = targets[(int) pairs[i]];
+                }
+                sweep(s, src, group, end - start);
+                for (int i = start; i < end; i++) {
+                    int pair = (int) pairs[i];
+                    int v = targets[pair];
+                    if (s.forwardStamp[v] != s.epoch) {
+                        result[pair] = new int[0];
+                        continue;
+                    }
+                    int[] path = new int[s.forwardDist[v] + 1];
+                    for (int k = path.length - 1; k >= 0; k--) {
+                        path[k] = v;
+                        v = s.forwardParent[v];
+                    }
+                    result[pair] = path;
+                }
+            }
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the distance of every (source, target) pair. Up to 64 distinct sources are
+     * searched by one multi-source BFS that keeps a bit per source for every node, so nodes
+     * and edges shared by the searches are only looked at once per level.
+     * @param sources the node each path starts at
+     * @param targets the node each path ends at
+     * @return the distance of every pair, in the order of the pairs, or -1 if the pair has no
+     *         path
+     * @throws IllegalArgumentException if the arrays are null or differ in length, or if a
+     *         node is not in the graph
+     */
+    public int[] distances(int[] sources, int[] targets) {
+        long[] pairs = sortPairs(sources, targets);
+        Scratch s = this.scratch.get();
+        s.ensureSweep();
+        int[] result = new int[pairs.length];
+        Arrays.fill(result, -1);
+
+        int start = 0;
+        while (start < pairs.length) {
+            // take the pairs of the next 64 distinct sources
+            int end = start;
+            int width = 0;
+            while (end < pairs.length && (width < SWEEP_WIDTH
+                    || (int) (pairs[end] >>> 32) == (int) (pairs[end - 1] >>> 32))) {
+                if (end == start || (int) (pairs[end] >>> 32) != (int) (pairs[end - 1] >>> 32)) {
+                    width++;
+                }
+                end++;
+            }
+            multiSourceSweep(s, pairs, start, end, targets, result);
+            start = end;
+        }
+        return result;
+    }
+
+    /**
+     * Method for running the bidirectional BFS of a query.
+     * @return the distance from src to tgt, or -1 if there is no path; for a path, s.meet is
+     *         a node on it reached from both sides
+     */
+    private int meet(Scratch s, int src, int tgt) {
+        s.nextEpoch();
+        int epoch = s.epoch;
+        s.forwardStamp[src] = epoch;
+        s.forwardDist[src] = 0;
+        s.forwardParent[src] = src;
+        s.backwardStamp[tgt] = epoch;
+        s.backwardDist[tgt] = 0;
+        s.backwardParent[tgt] = tgt;
+        s.meet = src;
+        if (src == tgt) {
+            return 0;
+        }
+
+        // each side's current level is queue[head] to queue[tail - 1]
+        s.forwardQueue[0] = src;
+        s.backwardQueue[0] = tgt;
+        int forwardHead = 0;
+        int forwardTail = 1;
+        int backwardHead = 0;
+        int backwardTail = 1;
+        long forwardEdges = this.csr.outDegree(src);
+        long backwardEdges = this.reverse.outDegree(tgt);
+        int best = -1;
+        while (forwardHead < forwardTail && backwardHead < backwardTail) {
+            boolean forward = forwardEdges <= backwardEdges;
+            CsrGraph side = forward ? this.csr : this.reverse;
+            int[] stamp = forward ? s.forwardStamp : s.backwardStamp;
+            int[] dist = forward ? s.forwardDist : s.backwardDist;
+            int[] parent = forward ? s.forwardParent : s.backwardParent;
+            int[] queue = forward ? s.forwardQueue : s.backwardQueue;
+            int[] otherStamp = forward ? s.backwardStamp : s.forwardStamp;
+            int[] otherDist = forward ? s.backwardDist : s.forwardDist;
+            int head = forward ? forwardHead : backwardHead;
+            int tail = forward ? forwardTail : backwardTail;
+
+            // expand the whole level, keeping the shortest connection found in it
+            int[] offsets = side.offsets();
+            int[] targets = side.targets();
+            int levelEnd = tail;
+            long edges = 0;
+            for (; head < levelEnd; head++) {
+                int u = queue[head];
+                for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                    int w = targets[k];
+                    if (stamp[w] == epoch) {
+                        continue;
+                    }
+                    stamp[w] = epoch;
+                    dist[w] = dist[u] + 1;
+                    parent[w] = u;
+                    queue[tail++] = w;
+                    edges += offsets[w + 1] - offsets[w];
+                    if (otherStamp[w] == epoch && (best < 0 || dist[w] + otherDist[w] < best)) {
+                        best = dist[w] + otherDist[w];
+                        s.meet = w;
+                    }
+                }
+            }
+            if (forward) {
+                forwardHead = head;
+                forwardTail = tail;
+                forwardEdges = edges;
+            } else {
+                backwardHead = head;
+                backwardTail = tail;
+                backwardEdges = edges;
+            }
+            if (best >= 0) {
+                return best;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Method for running a forward BFS from src that stops once the first count targets have
+     * all been reached. Targets are marked with the backward stamp.
+     */
+    private void sweep(Scratch s, int src, int[] targets, int count) {
+        s.nextEpoch();
+        int epoch = s.epoch;
+        int pending = 0;
+        for (int i = 0; i < count; i++) {
+            if (s.backwardStamp[targets[i]] != epoch) {
+                s.backwardStamp[targets[i]] = epoch;
+                pending++;
+            }
+        }
+        s.forwardStamp[src] = epoch;
+        s.forwardDist[src] = 0;
+        s.forwardParent[src] = src;
+        if (s.backwardStamp[src] == epoch) {
+            pending--;
+        }
+
+        int[] offsets = this.csr.offsets();
+        int[] edgeTargets = this.csr.targets();
+        int[] queue = s.forwardQueue;
+        queue[0] = src;
+        int head = 0;
+        int tail = 1;
+        while (head < tail && pending > 0) {
+            int u = queue[head++];
+            for (int k = offsets[u]; k < offsets[u + 1]; k++) {
+                int w = edgeTargets[k];
+                if (s.forwardStamp[w] != epoch) {
+                    s.forwardStamp[w] = epoch;
+                    s.forwardDist[w] = s.forwardDist[u] + 1;
+                    s.forwardParent[w] = u;
+                    queue[tail++] = w;
+                    if (s.backwardStamp[w] == epoch) {
+                        pending--;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Method for answering the sorted pairs from to to - 1, which have at most 64 distinct
+     * sources, with one multi-source BFS. Bit b of seen[v] is set once source b reached v.
+     */
+    private void multiSourceSweep(Scratch s, long[] pairs, int from, int to, int[] targets,
+            int[] result) {
+        long[] seen = s.seen;
+        long[] visit = s.visit;
+        long[] visitNext = s.visitNext;
+        int[] active = s.active;
+        int[] nextActive = s.nextActive;
+        int activeCount = 0;
+        int touchedCount = 0;
+
+        // give every source a bit and make the unanswered pairs pending
+        long[] pairBits = new long[to - from];
+        int[] pending = new int[to - from];
+        int pendingCount = 0;
+        long bit = 0;
+        for (int i = from; i < to; i++) {
+            int src = (int) (pairs[i] >>> 32);
+            if (i == from || src != (int) (pairs[i - 1] >>> 32)) {
+                bit = bit == 0 ? 1L : bit << 1;
+                if (seen[src] == 0) {
+                    s.touched[touchedCount++] = src;
+                    active[activeCount++] = src;
+                }
+                seen[src] |= bit;
+                visit[src] |= bit;
+            }
+            int pair = (int) pairs[i];
+            if (src == targets[pair]) {
+                result[pair] = 0;
+            } else {
+                pairBits[pendingCount] = bit;
+                pending[pendingCount++] = i;
+            }
+        }
+
+        int[] offsets = this.csr.offsets();
+        int[] edgeTargets = this.csr.targets();
+        int level = 0;
+        while (activeCount > 0 && pendingCount > 0) {
+            level++;
+            int nextCount = 0;
+            for (int i = 0; i < activeCount; i++) {
+                int v = active[i];
+                long bits = visit[v];
+                visit[v] = 0;
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    int w = edgeTargets[k];
+                    long fresh = bits & ~seen[w];
+                    if (fresh == 0) {
+                        continue;
+                    }
+                    if (seen[w] == 0) {
+                        s.touched[touchedCount++] = w;
+                    }
+                    if (visitNext[w] == 0) {
+                        nextActive[nextCount++] = w;
+                    }
+                    seen[w] |= fresh;
+                    visitNext[w] |= fresh;
+                }
+            }
+            long[] swapBits = visit;
+            visit = visitNext;
+            visitNext = swapBits;
+            int[] swapNodes = active;
+            active = nextActive;
+            nextActive = swapNodes;
+            activeCount = nextCount;
+
+            // answer the pairs whose target was reached in this level
+            for (int i = 0; i < pendingCount; i++) {
+                int pair = (int) pairs[pending[i]];
+                if ((seen[targets[pair]] & pairBits[i]) != 0) {
+                    result[pair] = level;
+                    pendingCount--;
+                    pending[i] = pending[pendingCount];
+                    pairBits[i] = pairBits[pendingCount];
+                    i--;
+                }
+            }
+        }
+
+        // clear only what this sweep touched
+        for (int i = 0; i < touchedCount; i++) {
+            int v = s.touched[i];
+            seen[v] = 0;
+            visit[v] = 0;
+            visitNext[v] = 0;
+        }
+    }
+
+    /**
+     * Method for sorting the pairs by source, packed as source << 32 | pair index.
+     */
+    private long[] sortPairs(int[] sources, int[] targets) {
+        if (sources == null || targets == null || sources.length != targets.length) {
+            throw new IllegalArgumentException("Sources and targets must have the same length");
+        }
+        checkNodes(sources);
+        checkNodes(targets);
+        long[] pairs = new long[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            pairs[i] = ((long) sources[i] << 32) | i;
+        }
+        Arrays.sort(pairs);
+        return pairs;
+    }
+
+    private void checkNodes(int[] nodes) {
+        if (nodes == null) {
+            throw new IllegalArgumentException("Nodes can't be null");
+        }
+        for (int v : nodes) {
+            checkNode(v);
+        }
+    }
+
+    /**
+     * Method for checking that a node is present in the graph
+     * @param v, the node
+     * @throws IllegalArgumentException if the specified node does not exist
+     */
+    private void checkNode(int v) {
+        if (v < 0 || v >= this.csr.getSize()) {
+            throw new IllegalArgumentException("" + v + " is not present in the graph");
+        }
+    }
+
+    /**
+     * The scratch arrays of one thread. An entry of a stamped array is only valid if its
+     * stamp equals the current epoch, so starting a query is just incrementing the epoch.
+     */
+    private static final class Scratch {
+        private final int[] forwardStamp;
+        private final int[] forwardDist;
+        private final int[] forwardParent;
+        private final int[] forwardQueue;
+        private final int[] backwardStamp;
+        private final int[] backwardDist;
+        private final int[] backwardParent;
+        private final int[] backwardQueue;
+        private int epoch;
+        private int meet;
+
+        // arrays of the multi-source sweep, allocated on first use and all zero between sweeps
+        private long[] seen;
+        private long[] visit;
+        private long[] visitNext;
+        private int[] active;
+        private int[] nextActive;
+        private int[] touched;
+
+        Scratch(int n) {
+            this.forwardStamp = new int[n];
+            this.forwardDist = new int[n];
+            this.forwardParent = new int[n];
+            this.forwardQueue = new int[n];
+            this.backwardStamp = new int[n];
+            this.backwardDist = new int[n];
+            this.backwardParent = new int[n];
+            this.backwardQueue = new int[n];
+        }
+
+        void nextEpoch() {
+            if (this.epoch == Integer.MAX_VALUE) {
+                // the stamps wrapped around, so old ones could look current
+                Arrays.fill(this.forwardStamp, 0);
+                Arrays.fill(this.backwardStamp, 0);
+                this.epoch = 0;
+            }
+            this.epoch++;
+        }
+
+        void ensureSweep() {
+            if (this.seen == null) {
+                int n = this.forwardStamp.length;
+                this.seen = new long[n];
+                this.visit = new long[n];
+                this.visitNext = new long[n];
+                this.active = new int[n];
+                this.nextActive = new int[n];
+                this.touched = new int[n];
+            }
+        }
+    }
+}
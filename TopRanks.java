@@ -0,0 +1,55 @@
+/**
+ * The best nodes of a ranking query, best first, with their ranks and some statistics about
+ * the query.
+ */
+public class TopRanks {
+    private final int[] nodes;
+    private final double[] ranks;
+    private final double residual;
+    private final int touched;
+    private final long pushes;
+
+    /**
+     * Creates a result.
+     * @param nodes, the best nodes, best first
+     * @param ranks, the rank of each of the best nodes, in the same order
+     * @param residual, the total rank the query left undistributed, a bound on its error
+     * @param touched, the number of nodes the query looked at
+     * @param pushes, the number of times the query pushed rank from a node to its neighbors
+     */
+    public TopRanks(int[] nodes, double[] ranks, double residual, int touched, long pushes) {
+        this.nodes = nodes;
+        this.ranks = ranks;
+        this.residual = residual;
+        this.touched = touched;
+        this.pushes = pushes;
+    }
+
+    /**
+     * Returns the best nodes. The array is not copied.
+     * @return the best nodes, best first
+     */
+    public int[] getNodes() {
+        return this.nodes;
+    }
+
+    /**
+     * Returns the ranks of the best nodes. The array is not copied.
+     * @return the rank of each node of getNodes(), in the same order
+     */
+    public double[] getRanks() {
+        return this.ranks;
+    }
+
+    public double getResidual() {
+        return this.residual;
+    }
+
+    public int getTouched() {
+        return this.touched;
+    }
+
+    public long getPushes() {
+        return this.pushes;
+    }
+}
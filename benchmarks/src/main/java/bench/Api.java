@@ -0,0 +1,120 @@
+package bench;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Handles to the classes under test. They live in the default package, which code in a named
+ * package cannot refer to, and JMH does not accept benchmarks in the default package. The
+ * handles are constants with every project type erased to Object, so the JIT inlines
+ * invokeExact like a direct call.
+ */
+final class Api {
+    static final MethodHandle READ_FILE;
+    static final MethodHandle NEW_GRAPH;
+    static final MethodHandle ADD_EDGE;
+    static final MethodHandle ADD_EDGES;
+    static final MethodHandle HAS_EDGE;
+    static final MethodHandle DEGREE;
+    static final MethodHandle PAGE_RANK;
+    static final MethodHandle BFS_IMPL;
+    static final MethodHandle GET_SHORTEST_PATH;
+    static final MethodHandle IS_CONNECTED;
+    static final MethodHandle DFS_IMPL;
+    static final MethodHandle RMAT;
+    static final MethodHandle BARABASI_ALBERT;
+    static final MethodHandle ERDOS_RENYI;
+    static final MethodHandle WRITE_EDGE_LIST;
+    static final MethodHandle EDGE_COUNT;
+    static final MethodHandle SOURCE;
+    static final MethodHandle DESTINATION;
+    static final MethodHandle INSTRUMENTATION_ENABLED;
+    static final MethodHandle SET_INSTRUMENTATION_ENABLED;
+    static final MethodHandle RESET_INSTRUMENTATION;
+    static final MethodHandle INSTRUMENTATION_SNAPSHOT;
+
+    static {
+        try {
+            Class<?> graph = Class.forName("Graph");
+            Class<?> buffer = Class.forName("EdgeBuffer");
+            Class<?> generator = Class.forName("GraphGenerator");
+            Class<?> instrumentation = Class.forName("Instrumentation");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+            READ_FILE = erased(lookup.findStatic(Class.forName("Reader"), "readFile",
+                    MethodType.methodType(graph, String.class)));
+            NEW_GRAPH = erased(lookup.findConstructor(graph,
+                    MethodType.methodType(void.class, int.class)));
+            ADD_EDGE = erased(lookup.findVirtual(graph, "addEdge",
+                    MethodType.methodType(boolean.class, int.class, int.class)));
+            ADD_EDGES = erased(lookup.findVirtual(graph, "addEdges",
+                    MethodType.methodType(int.class, int[].class, int[].class, int.class)));
+            HAS_EDGE = erased(lookup.findVirtual(graph, "hasEdge",
+                    MethodType.methodType(boolean.class, int.class, int.class)));
+            DEGREE = erased(lookup.findVirtual(graph, "degree",
+                    MethodType.methodType(int.class, int.class)));
+            PAGE_RANK = erased(lookup.findVirtual(graph, "pageRank",
+                    MethodType.methodType(Map.class)));
+            BFS_IMPL = erased(lookup.findStatic(Class.forName("BFS"), "bfsImpl",
+                    MethodType.methodType(List.class, graph, int.class, List.class,
+                            boolean[].class, Integer[].class, int[].class)));
+            GET_SHORTEST_PATH = erased(lookup.findStatic(Class.forName("BFS"), "getShortestPath",
+                    MethodType.methodType(List.class, graph, int.class, int.class)));
+            IS_CONNECTED = erased(lookup.findStatic(Class.forName("BFS"), "isConnected",
+                    MethodType.methodType(boolean.class, graph, int.class)));
+            DFS_IMPL = erased(lookup.findStatic(Class.forName("DFS"), "dfsImpl",
+                    MethodType.methodType(List.class, graph, int.class, List.class,
+                            boolean[].class, Integer[].class)));
+            RMAT = erased(lookup.findStatic(generator, "rmat",
+                    MethodType.methodType(buffer, int.class, int.class, long.class)));
+            BARABASI_ALBERT = erased(lookup.findStatic(generator, "barabasiAlbert",
+                    MethodType.methodType(buffer, int.class, int.class, long.class)));
+            ERDOS_RENYI = erased(lookup.findStatic(generator, "erdosRenyi",
+                    MethodType.methodType(buffer, int.class, int.class, long.class)));
+            WRITE_EDGE_LIST = erased(lookup.findStatic(generator, "writeEdgeList",
+                    MethodType.methodType(void.class, buffer, String.class)));
+            EDGE_COUNT = erased(lookup.findVirtual(buffer, "size",
+                    MethodType.methodType(int.class)));
+            SOURCE = erased(lookup.findVirtual(buffer, "getSource",
+                    MethodType.methodType(int.class, int.class)));
+            DESTINATION = erased(lookup.findVirtual(buffer, "getDestination",
+                    MethodType.methodType(int.class, int.class)));
+            INSTRUMENTATION_ENABLED = lookup.findStatic(instrumentation, "isEnabled",
+                    MethodType.methodType(boolean.class));
+            SET_INSTRUMENTATION_ENABLED = lookup.findStatic(instrumentation, "setEnabled",
+                    MethodType.methodType(void.class, boolean.class));
+            RESET_INSTRUMENTATION = lookup.findStatic(instrumentation, "reset",
+                    MethodType.methodType(void.class));
+            INSTRUMENTATION_SNAPSHOT = lookup.findStatic(instrumentation, "snapshot",
+                    MethodType.methodType(Map.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private Api() {
+    }
+
+    /**
+     * Method for changing every project type in the type of a handle to Object.
+     */
+    private static MethodHandle erased(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (isProjectType(type.parameterType(i))) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (isProjectType(type.returnType())) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+
+    private static boolean isProjectType(Class<?> type) {
+        return !type.isPrimitive() && !type.isArray() && type.getPackageName().isEmpty();
+    }
+}
@@ -0,0 +1,22 @@
+package bench;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Counts the edges a benchmark went through, which JMH reports as a rate next to the score.
+ * Edges per second can be compared across graph sizes, unlike calls per second.
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class EdgeCounter {
+    public long edges;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        this.edges = 0;
+    }
+}
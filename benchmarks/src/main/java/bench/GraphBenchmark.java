@@ -0,0 +1,49 @@
+package bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Building a graph one edge at a time with Graph.addEdge, and edge lookups with
+ * Graph.hasEdge.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class GraphBenchmark {
+
+    @Benchmark
+    public Object addEdge(GraphState s, EdgeCounter counter, Blackhole bh) throws Throwable {
+        Object g = (Object) Api.NEW_GRAPH.invokeExact(s.nodes);
+        int[] sources = s.sources;
+        int[] destinations = s.destinations;
+        for (int e = 0; e < sources.length; e++) {
+            bh.consume((boolean) Api.ADD_EDGE.invokeExact(g, sources[e], destinations[e]));
+        }
+        counter.edges += sources.length;
+        return g;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GraphState.PAIRS)
+    public int hasEdge(GraphState s) throws Throwable {
+        int found = 0;
+        for (int i = 0; i < GraphState.PAIRS; i++) {
+            if ((boolean) Api.HAS_EDGE.invokeExact(s.graph, s.pairSources[i], s.pairTargets[i])) {
+                found++;
+            }
+        }
+        return found;
+    }
+}
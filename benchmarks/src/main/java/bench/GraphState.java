@@ -0,0 +1,146 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A generated graph shared by the benchmarks of a trial. Every combination of generator and
+ * edge count is one point of a scaling curve. The graphs average 16 edges per node, like the
+ * Graph500 benchmark, and the same seed always gives the same graph.
+ */
+@State(Scope.Benchmark)
+public class GraphState {
+    // number of random node pairs prepared for the lookup benchmarks
+    static final int PAIRS = 1024;
+
+    @Param({"rmat", "ba", "er"})
+    public String generator;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int edges;
+
+    @Param("42")
+    public long seed;
+
+    // the generated EdgeBuffer
+    Object buffer;
+    int nodes;
+    int[] sources;
+    int[] destinations;
+
+    // a Graph with every generated edge, and its number of edges without duplicates
+    Object graph;
+    int graphEdges;
+
+    // the node the searches start at, the one with the most outgoing edges. Barabasi-Albert
+    // points edges from new nodes to old ones, so node 0 reaches nothing and ties go to the
+    // newest node, which reaches the most
+    int source;
+
+    // the number of edges each search relaxes from the source, counted once by Instrumentation
+    long bfsEdges;
+    long connectedEdges;
+    long dfsEdges;
+
+    // node pairs, half of them edges of the graph
+    int[] pairSources;
+    int[] pairTargets;
+
+    @Setup(Level.Trial)
+    public void generate() throws Throwable {
+        switch (this.generator) {
+            case "rmat":
+                int scale = 32 - Integer.numberOfLeadingZeros(Math.max(1, this.edges / 16 - 1));
+                this.nodes = 1 << scale;
+                this.buffer = (Object) Api.RMAT.invokeExact(scale, this.edges, this.seed);
+                break;
+            case "ba":
+                this.nodes = Math.max(2, this.edges / 8);
+                this.buffer = (Object) Api.BARABASI_ALBERT.invokeExact(this.nodes, 8, this.seed);
+                break;
+            case "er":
+                this.nodes = Math.max(2, this.edges / 16);
+                this.buffer = (Object) Api.ERDOS_RENYI.invokeExact(this.nodes, this.edges,
+                        this.seed);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown generator " + this.generator);
+        }
+
+        int count = (int) Api.EDGE_COUNT.invokeExact(this.buffer);
+        this.sources = new int[count];
+        this.destinations = new int[count];
+        for (int e = 0; e < count; e++) {
+            this.sources[e] = (int) Api.SOURCE.invokeExact(this.buffer, e);
+            this.destinations[e] = (int) Api.DESTINATION.invokeExact(this.buffer, e);
+        }
+        this.graph = (Object) Api.NEW_GRAPH.invokeExact(this.nodes);
+        this.graphEdges = (int) Api.ADD_EDGES.invokeExact(this.graph, this.sources,
+                this.destinations, count);
+
+        int most = -1;
+        for (int v = 0; v < this.nodes; v++) {
+            int degree = (int) Api.DEGREE.invokeExact(this.graph, v);
+            if (degree >= most) {
+                most = degree;
+                this.source = v;
+            }
+        }
+        countRelaxedEdges();
+
+        SplittableRandom random = new SplittableRandom(this.seed);
+        this.pairSources = new int[PAIRS];
+        this.pairTargets = new int[PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            if (i % 2 == 0 && count > 0) {
+                int e = random.nextInt(count);
+                this.pairSources[i] = this.sources[e];
+                this.pairTargets[i] = this.destinations[e];
+            } else {
+                this.pairSources[i] = random.nextInt(this.nodes);
+                this.pairTargets[i] = random.nextInt(this.nodes);
+            }
+        }
+    }
+
+    /**
+     * Method for running every search once with Instrumentation enabled, to find how many
+     * edges it relaxes. Searches from the same source always relax the same edges, so the
+     * benchmarks can report edges per second without counting while they are measured.
+     */
+    private void countRelaxedEdges() throws Throwable {
+        int n = this.nodes;
+        boolean enabled = (boolean) Api.INSTRUMENTATION_ENABLED.invokeExact();
+        Api.SET_INSTRUMENTATION_ENABLED.invokeExact(true);
+        try {
+            Api.RESET_INSTRUMENTATION.invokeExact();
+            Api.BFS_IMPL.invoke(this.graph, this.source, new ArrayList<Integer>(),
+                    new boolean[n], new Integer[n], new int[n]);
+            this.bfsEdges = counter("bfs_edges_relaxed_total");
+
+            Api.RESET_INSTRUMENTATION.invokeExact();
+            Api.IS_CONNECTED.invoke(this.graph, this.source);
+            this.connectedEdges = counter("bfs_edges_relaxed_total");
+
+            Api.RESET_INSTRUMENTATION.invokeExact();
+            Api.DFS_IMPL.invoke(this.graph, this.source, new ArrayList<Integer>(),
+                    new boolean[n], new Integer[n]);
+            this.dfsEdges = counter("dfs_edges_relaxed_total");
+            Api.RESET_INSTRUMENTATION.invokeExact();
+        } finally {
+            Api.SET_INSTRUMENTATION_ENABLED.invokeExact(enabled);
+        }
+    }
+
+    private static long counter(String name) throws Throwable {
+        Map<?, ?> counters = (Map<?, ?>) Api.INSTRUMENTATION_SNAPSHOT.invokeExact();
+        return (Long) counters.get(name);
+    }
+}
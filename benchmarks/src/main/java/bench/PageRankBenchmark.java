@@ -0,0 +1,30 @@
+package bench;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Ranking a generated graph with Graph.pageRank and the default settings.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PageRankBenchmark {
+
+    @Benchmark
+    public Map<?, ?> pageRank(GraphState s, EdgeCounter counter) throws Throwable {
+        Map<?, ?> ranks = (Map<?, ?>) Api.PAGE_RANK.invokeExact(s.graph);
+        counter.edges += s.graphEdges;
+        return ranks;
+    }
+}
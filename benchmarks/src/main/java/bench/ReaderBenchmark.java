@@ -0,0 +1,52 @@
+package bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading a generated graph from an edge list file with Reader.readFile. The file is written
+ * once per trial to the temporary directory, so after the first read it is in the page cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class ReaderBenchmark {
+    private File file;
+
+    @Setup(Level.Trial)
+    public void write(GraphState s) throws Throwable {
+        this.file = File.createTempFile("edge_list_" + s.generator + "_" + s.edges, ".txt");
+        Api.WRITE_EDGE_LIST.invokeExact(s.buffer, this.file.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void delete() throws IOException {
+        if (!this.file.delete()) {
+            throw new IOException("Could not delete " + this.file);
+        }
+    }
+
+    @Benchmark
+    public Object readFile(GraphState s, EdgeCounter counter) throws Throwable {
+        Object g = (Object) Api.READ_FILE.invokeExact(this.file.getPath());
+        counter.edges += s.sources.length;
+        return g;
+    }
+}
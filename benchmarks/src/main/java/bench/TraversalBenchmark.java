@@ -0,0 +1,64 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Searches of a generated graph: full BFS and DFS orders and connectivity checks from the node
+ * with the most outgoing edges, and shortest paths between prepared node pairs, half of them
+ * the ends of an edge.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class TraversalBenchmark {
+    // the next pair to find a path between
+    private int pair;
+
+    @Benchmark
+    public List<?> bfsImpl(GraphState s, EdgeCounter counter) throws Throwable {
+        int n = s.nodes;
+        List<?> order = (List<?>) Api.BFS_IMPL.invokeExact(s.graph, s.source,
+                (List) new ArrayList<Integer>(), new boolean[n], new Integer[n], new int[n]);
+        counter.edges += s.bfsEdges;
+        return order;
+    }
+
+    @Benchmark
+    public List<?> getShortestPath(GraphState s) throws Throwable {
+        int i = this.pair;
+        this.pair = i + 1 == GraphState.PAIRS ? 0 : i + 1;
+        return (List<?>) Api.GET_SHORTEST_PATH.invokeExact(s.graph, s.pairSources[i],
+                s.pairTargets[i]);
+    }
+
+    @Benchmark
+    public boolean isConnected(GraphState s, EdgeCounter counter) throws Throwable {
+        boolean connected = (boolean) Api.IS_CONNECTED.invokeExact(s.graph, s.source);
+        counter.edges += s.connectedEdges;
+        return connected;
+    }
+
+    @Benchmark
+    public List<?> dfsImpl(GraphState s, EdgeCounter counter) throws Throwable {
+        int n = s.nodes;
+        List<?> order = (List<?>) Api.DFS_IMPL.invokeExact(s.graph, s.source,
+                (List) new ArrayList<Integer>(), new boolean[n], new Integer[n]);
+        counter.edges += s.dfsEdges;
+        return order;
+    }
+}